@@ -0,0 +1,98 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an exec call once it reaches the plugin: parsing the arguments
+ * sent by JavaScript and dispatching the action.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecuteBenchmark {
+
+    // getLocation is answered from the cache, the fix stays fresh for the run
+    private static final String GET_LOCATION_ARGS = "[3600000,false,{\"maximumAge\":3600000,"
+            + "\"enableHighAccuracy\":false,\"timeout\":null,\"maximumAccuracy\":0}]";
+    private static final String ADD_WATCH_ARGS = "[\"watch\",false,100,6000,1000,"
+            + "{\"maximumAge\":0,\"enableHighAccuracy\":false,\"timeout\":null,"
+            + "\"interval\":6000,\"fastInterval\":1000,\"priority\":100,"
+            + "\"maxWaitTime\":0,\"batchSize\":0,\"format\":\"json\","
+            + "\"minDistance\":0,\"minTime\":0,\"simplifyTolerance\":0,"
+            + "\"smoothing\":false}]";
+    private static final String CLEAR_WATCH_ARGS = "[\"watch\"]";
+
+    @Param({"getLocation", "addWatch", "clearWatch"})
+    public String action;
+
+    private CordovaLocationServices mPlugin;
+    private CallbackContext mCallbackContext;
+    private String mArgs;
+
+    @Setup
+    public void setUp() {
+        mPlugin = Fixtures.createPlugin();
+        mCallbackContext = new CallbackContext();
+
+        Location loc = Fixtures.createLocation(System.currentTimeMillis());
+        mPlugin.onLocation(loc);
+
+        if (action.equals("getLocation")) {
+            mArgs = GET_LOCATION_ARGS;
+        } else if (action.equals("addWatch")) {
+            mArgs = ADD_WATCH_ARGS;
+        } else {
+            mArgs = CLEAR_WATCH_ARGS;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPlugin.onDestroy();
+    }
+
+    @Benchmark
+    public boolean execute() throws JSONException {
+        // Cordova parses the arguments before calling the plugin
+        return mPlugin.execute(action, new JSONArray(mArgs), mCallbackContext);
+    }
+}
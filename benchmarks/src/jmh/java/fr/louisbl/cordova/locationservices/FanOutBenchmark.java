@@ -0,0 +1,94 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of delivering one fix to every running watch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+    private static final long INTERVAL = 1000;
+
+    @Param({"1", "10", "100", "1000"})
+    public int watches;
+
+    @Param({"json", "compact"})
+    public String format;
+
+    private CordovaLocationListener mListener;
+    private long mTime;
+
+    @Setup
+    public void setUp() throws JSONException {
+        CordovaLocationServices plugin = Fixtures.createPlugin();
+        // An empty trace never sends a fix, the benchmark sends them
+        LocationSource source = new ReplayLocationSource(
+                Collections.<Location>emptyList(), 1, false);
+        mListener = new CordovaLocationListener(source, plugin, LocationUtils.APPTAG);
+
+        JSONObject options = new JSONObject();
+        options.put("format", format);
+        for (int i = 0; i < watches; i++) {
+            mListener.addWatch(new LocationWatch("watch-" + i, new CallbackContext(),
+                    LocationRequest.PRIORITY_HIGH_ACCURACY, INTERVAL, INTERVAL, options));
+        }
+        mTime = System.currentTimeMillis();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mListener.quit();
+    }
+
+    @Benchmark
+    public void win() {
+        // Every fix is due for every watch
+        mTime += INTERVAL;
+        mListener.win(Fixtures.createLocation(mTime));
+    }
+}
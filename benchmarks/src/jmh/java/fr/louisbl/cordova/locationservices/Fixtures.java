@@ -0,0 +1,102 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.app.Activity;
+import android.location.Location;
+
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPlugin;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaWebView;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Plugin instances and fixes shared by the benchmarks.
+ */
+final class Fixtures {
+
+    // Runs the work Cordova hands to its thread pool
+    private static final ExecutorService THREAD_POOL = Executors.newCachedThreadPool(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "cordova-pool");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private Fixtures() {
+    }
+
+    /**
+     * @return A plugin initialized the way Cordova does it
+     */
+    static CordovaLocationServices createPlugin() {
+        return createPlugin(new CordovaPreferences());
+    }
+
+    /**
+     * @return A plugin initialized the way Cordova does it, with the
+     * preferences of config.xml
+     */
+    static CordovaLocationServices createPlugin(CordovaPreferences preferences) {
+        final Activity activity = new Activity();
+        CordovaInterface cordova = new CordovaInterface() {
+            @Override
+            public Activity getActivity() {
+                return activity;
+            }
+
+            @Override
+            public ExecutorService getThreadPool() {
+                return THREAD_POOL;
+            }
+
+            @Override
+            public void requestPermissions(CordovaPlugin plugin, int requestCode,
+                                           String[] permissions) {
+            }
+        };
+
+        CordovaLocationServices plugin = new CordovaLocationServices();
+        plugin.privateInitialize("LocationServices", cordova, new CordovaWebView() {
+        }, preferences);
+        return plugin;
+    }
+
+    /**
+     * @return A GPS fix with every field set
+     */
+    static Location createLocation(long time) {
+        Location loc = new Location("fused");
+        loc.setTime(time);
+        loc.setLatitude(48.8566 + (time % 1000) * 1e-6);
+        loc.setLongitude(2.3522 + (time % 1000) * 1e-6);
+        loc.setAltitude(35.2);
+        loc.setAccuracy(4.5f);
+        loc.setSpeed(1.4f);
+        loc.setBearing(87.5f);
+        return loc;
+    }
+}
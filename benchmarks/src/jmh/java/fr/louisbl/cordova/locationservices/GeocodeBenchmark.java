@@ -0,0 +1,123 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reverse geocoding of a walk back and forth along a 2 km street, through
+ * the geohash cache and a stub Geocoder. The aux counters give the share
+ * of lookups reaching the Geocoder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeocodeBenchmark {
+
+    // Meters walked between two lookups, and in degrees of latitude
+    private static final double STEP = 5;
+    private static final double STEP_DEGREES = STEP / 111320;
+    private static final int STEPS = 400;
+
+    @Param({"6", "7", "8"})
+    public int precision;
+
+    @Param({"16", "500"})
+    public int capacity;
+
+    private final LocationStats mStats = new LocationStats();
+    private GeocodeCache mCache;
+    private int mStep;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long lookups;
+        public long geocoderCalls;
+    }
+
+    @Setup
+    public void setUp() throws JSONException {
+        final JSONArray addresses = new JSONArray().put(new JSONObject()
+                .put("thoroughfare", "Rue de Rivoli")
+                .put("locality", "Paris")
+                .put("countryCode", "FR"));
+        GeocoderBackend backend = new GeocoderBackend() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public JSONArray getAddresses(double latitude, double longitude, int maxResults)
+                    throws IOException {
+                return addresses;
+            }
+        };
+        // Runs the stub Geocoder in the calling thread
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        mCache = new GeocodeCache(backend, direct, mStats, capacity, null);
+    }
+
+    @Benchmark
+    public void lookup(final Counters counters) {
+        // Back and forth so that the street is walked again
+        int step = mStep++ % (2 * STEPS);
+        double offset = (step < STEPS ? step : 2 * STEPS - step) * STEP_DEGREES;
+
+        long before = mStats.geocodeCalls.get();
+        mCache.lookup(48.8566 + offset, 2.3522, precision, new GeocodeCache.Callback() {
+            @Override
+            public void onAddresses(JSONArray addresses) {
+            }
+
+            @Override
+            public void onError(String message) {
+            }
+        });
+        counters.lookups++;
+        counters.geocoderCalls += mStats.geocodeCalls.get() - before;
+    }
+}
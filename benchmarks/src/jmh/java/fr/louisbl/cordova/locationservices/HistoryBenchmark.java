@@ -0,0 +1,76 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording a fix in the history, which should not allocate, and reading
+ * the newest fixes back for getHistory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+
+    @Param({"100", "1000"})
+    public int count;
+
+    private LocationHistory mHistory;
+    private Location mLocation;
+    private long mTime;
+
+    @Setup
+    public void setUp() {
+        mHistory = new LocationHistory(LocationUtils.HISTORY_SIZE);
+        for (mTime = 0; mTime < LocationUtils.HISTORY_SIZE; mTime++) {
+            mHistory.put(Fixtures.createLocation(mTime * 1000));
+        }
+        mLocation = Fixtures.createLocation(mTime * 1000);
+    }
+
+    @Benchmark
+    public int put() {
+        mLocation.setTime(++mTime * 1000);
+        mHistory.put(mLocation);
+        return mHistory.size();
+    }
+
+    @Benchmark
+    public byte[] query() {
+        return mHistory.query(0, count);
+    }
+}
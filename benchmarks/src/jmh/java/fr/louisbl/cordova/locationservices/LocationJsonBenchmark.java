@@ -0,0 +1,72 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding one fix, as a JSON object and as the message sent over
+ * the bridge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationJsonBenchmark {
+
+    private CordovaLocationServices mPlugin;
+    private Location mLocation;
+
+    @Setup
+    public void setUp() {
+        mPlugin = Fixtures.createPlugin();
+        mLocation = Fixtures.createLocation(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public JSONObject returnLocationJSON() {
+        return mPlugin.returnLocationJSON(mLocation);
+    }
+
+    @Benchmark
+    public String jsonMessage() {
+        return new LocationPayload(mLocation, mPlugin).getResult(true).getMessage();
+    }
+
+    @Benchmark
+    public String compactMessage() {
+        return new LocationPayload(mLocation, mPlugin).getCompactResult().getMessage();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaPreferences;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Replays a trace through the plugin to a number of watches and prints the
+ * statistics of the run, for soak and performance tests.
+ * <p/>
+ * Arguments: the trace, the replay speed and the number of watches.
+ */
+public final class ReplayRunner {
+
+    // Time left to the watches after the last fix of the trace
+    private static final long DRAIN = 1000;
+
+    private ReplayRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, JSONException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayRunner trace [speed] [watches]");
+            System.exit(2);
+        }
+        File trace = new File(args[0]).getAbsoluteFile();
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        int watches = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        List<Location> fixes;
+        Reader reader = new InputStreamReader(new FileInputStream(trace), "UTF-8");
+        try {
+            fixes = TraceParser.parse(reader);
+        } finally {
+            reader.close();
+        }
+        if (fixes.isEmpty()) {
+            System.err.println("No fix in " + trace);
+            System.exit(1);
+        }
+        long duration = fixes.get(fixes.size() - 1).getTime() - fixes.get(0).getTime();
+
+        CordovaPreferences preferences = new CordovaPreferences();
+        preferences.set(LocationUtils.REPLAY_PREFERENCE, trace.getPath());
+        preferences.set(LocationUtils.REPLAY_SPEED_PREFERENCE, String.valueOf(speed));
+        CordovaLocationServices plugin = Fixtures.createPlugin(preferences);
+
+        JSONObject options = new JSONObject();
+        options.put("interval", 0);
+        options.put("fastInterval", 0);
+        for (int i = 0; i < watches; i++) {
+            JSONArray watch = new JSONArray();
+            watch.put("watch-" + i);
+            watch.put(false);
+            watch.put(100);
+            watch.put(0);
+            watch.put(0);
+            watch.put(options);
+            plugin.execute("addWatch", watch, new CallbackContext());
+        }
+
+        Thread.sleep(Math.round(duration / speed) + DRAIN);
+
+        CallbackContext stats = new CallbackContext();
+        plugin.execute("getStats", new JSONArray(), stats);
+        plugin.onDestroy();
+
+        System.out.println(stats.lastMessage);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package android.content;
+
+import android.content.pm.ApplicationInfo;
+
+import java.io.File;
+
+public abstract class Context {
+
+    public static final String LOCATION_SERVICE = "location";
+    public static final String NOTIFICATION_SERVICE = "notification";
+
+    public abstract Object getSystemService(String name);
+
+    public abstract File getFilesDir();
+
+    public abstract Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter);
+
+    public abstract void unregisterReceiver(BroadcastReceiver receiver);
+
+    public abstract int checkSelfPermission(String permission);
+
+    public abstract ApplicationInfo getApplicationInfo();
+
+    public abstract ComponentName startService(Intent service);
+
+    public abstract ComponentName startForegroundService(Intent service);
+
+    public abstract boolean stopService(Intent service);
+}
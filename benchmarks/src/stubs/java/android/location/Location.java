@@ -0,0 +1,157 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package android.location;
+
+/**
+ * Same fields and accessors as the Android class.
+ */
+public class Location {
+
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private String mProvider;
+    private long mTime;
+    private double mLatitude;
+    private double mLongitude;
+    private double mAltitude;
+    private float mSpeed;
+    private float mBearing;
+    private float mAccuracy;
+    private boolean mHasAltitude;
+    private boolean mHasSpeed;
+    private boolean mHasBearing;
+    private boolean mHasAccuracy;
+
+    public Location(String provider) {
+        mProvider = provider;
+    }
+
+    public Location(Location l) {
+        set(l);
+    }
+
+    public void set(Location l) {
+        mProvider = l.mProvider;
+        mTime = l.mTime;
+        mLatitude = l.mLatitude;
+        mLongitude = l.mLongitude;
+        mAltitude = l.mAltitude;
+        mSpeed = l.mSpeed;
+        mBearing = l.mBearing;
+        mAccuracy = l.mAccuracy;
+        mHasAltitude = l.mHasAltitude;
+        mHasSpeed = l.mHasSpeed;
+        mHasBearing = l.mHasBearing;
+        mHasAccuracy = l.mHasAccuracy;
+    }
+
+    public String getProvider() {
+        return mProvider;
+    }
+
+    public long getTime() {
+        return mTime;
+    }
+
+    public void setTime(long time) {
+        mTime = time;
+    }
+
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    public void setLatitude(double latitude) {
+        mLatitude = latitude;
+    }
+
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    public void setLongitude(double longitude) {
+        mLongitude = longitude;
+    }
+
+    public boolean hasAltitude() {
+        return mHasAltitude;
+    }
+
+    public double getAltitude() {
+        return mAltitude;
+    }
+
+    public void setAltitude(double altitude) {
+        mAltitude = altitude;
+        mHasAltitude = true;
+    }
+
+    public boolean hasSpeed() {
+        return mHasSpeed;
+    }
+
+    public float getSpeed() {
+        return mSpeed;
+    }
+
+    public void setSpeed(float speed) {
+        mSpeed = speed;
+        mHasSpeed = true;
+    }
+
+    public boolean hasBearing() {
+        return mHasBearing;
+    }
+
+    public float getBearing() {
+        return mBearing;
+    }
+
+    public void setBearing(float bearing) {
+        mBearing = bearing;
+        mHasBearing = true;
+    }
+
+    public boolean hasAccuracy() {
+        return mHasAccuracy;
+    }
+
+    public float getAccuracy() {
+        return mAccuracy;
+    }
+
+    public void setAccuracy(float accuracy) {
+        mAccuracy = accuracy;
+        mHasAccuracy = true;
+    }
+
+    /**
+     * Haversine distance, the Android class uses the slower Vincenty
+     * formula.
+     */
+    public float distanceTo(Location dest) {
+        double p1 = Math.toRadians(mLatitude);
+        double p2 = Math.toRadians(dest.mLatitude);
+        double dp = p2 - p1;
+        double dl = Math.toRadians(dest.mLongitude - mLongitude);
+        double h = Math.sin(dp / 2) * Math.sin(dp / 2)
+                + Math.cos(p1) * Math.cos(p2) * Math.sin(dl / 2) * Math.sin(dl / 2);
+        return (float) (2 * EARTH_RADIUS * Math.asin(Math.sqrt(h)));
+    }
+}
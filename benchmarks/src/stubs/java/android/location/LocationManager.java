@@ -0,0 +1,50 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package android.location;
+
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LocationManager {
+
+    public static final String GPS_PROVIDER = "gps";
+    public static final String NETWORK_PROVIDER = "network";
+    public static final String PASSIVE_PROVIDER = "passive";
+
+    public boolean isProviderEnabled(String provider) {
+        return true;
+    }
+
+    public List<String> getAllProviders() {
+        return new ArrayList<String>();
+    }
+
+    public Location getLastKnownLocation(String provider) {
+        return null;
+    }
+
+    public void requestLocationUpdates(String provider, long minTime, float minDistance,
+                                       LocationListener listener, Looper looper) {
+    }
+
+    public void removeUpdates(LocationListener listener) {
+    }
+}
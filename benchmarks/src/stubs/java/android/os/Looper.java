@@ -0,0 +1,126 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package android.os;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Runs the tasks posted by its handlers in time order, like the Android
+ * message queue.
+ */
+public final class Looper {
+
+    private final PriorityQueue<Message> mQueue = new PriorityQueue<Message>();
+    private long mSequence;
+    private boolean mQuitting;
+
+    static final class Message implements Comparable<Message> {
+        final Handler target;
+        final Runnable callback;
+        final Object token;
+        final long when;
+        final long sequence;
+
+        Message(Handler target, Runnable callback, Object token, long when, long sequence) {
+            this.target = target;
+            this.callback = callback;
+            this.token = token;
+            this.when = when;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Message other) {
+            if (when != other.when) {
+                return when < other.when ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
+        }
+    }
+
+    synchronized boolean enqueue(Handler target, Runnable r, Object token, long when) {
+        if (mQuitting) {
+            return false;
+        }
+        mQueue.add(new Message(target, r, token, when, mSequence++));
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * @param r     The task to remove, or null for every task
+     * @param token The token of the tasks to remove, or null for any token
+     */
+    synchronized void remove(Handler target, Runnable r, Object token) {
+        Iterator<Message> it = mQueue.iterator();
+        while (it.hasNext()) {
+            Message m = it.next();
+            if (m.target == target && (r == null || m.callback == r)
+                    && (token == null || m.token == token)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs the due tasks until quitSafely is called, then the tasks already
+     * due.
+     */
+    void loop() {
+        while (true) {
+            Message next;
+            synchronized (this) {
+                while (true) {
+                    long now = SystemClock.uptimeMillis();
+                    Message head = mQueue.peek();
+                    if (head != null && head.when <= now) {
+                        next = mQueue.poll();
+                        break;
+                    }
+                    if (mQuitting) {
+                        return;
+                    }
+                    try {
+                        if (head == null) {
+                            wait();
+                        } else {
+                            wait(head.when - now);
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            next.callback.run();
+        }
+    }
+
+    synchronized void quitSafely() {
+        mQuitting = true;
+        Iterator<Message> it = mQueue.iterator();
+        long now = SystemClock.uptimeMillis();
+        while (it.hasNext()) {
+            if (it.next().when > now) {
+                it.remove();
+            }
+        }
+        notifyAll();
+    }
+}
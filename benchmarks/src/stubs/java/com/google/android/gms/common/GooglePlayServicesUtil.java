@@ -0,0 +1,36 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.google.android.gms.common;
+
+import android.app.Activity;
+import android.app.Dialog;
+import android.content.Context;
+
+public class GooglePlayServicesUtil {
+
+    public static final String GOOGLE_PLAY_SERVICES_PACKAGE = "com.google.android.gms";
+
+    public static int isGooglePlayServicesAvailable(Context context) {
+        return ConnectionResult.SUCCESS;
+    }
+
+    public static Dialog getErrorDialog(int errorCode, Activity activity, int requestCode) {
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.google.android.gms.common.api;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import com.google.android.gms.common.ConnectionResult;
+
+/**
+ * Connects at once, without calling the connection callbacks.
+ */
+public class GoogleApiClient {
+
+    public interface ConnectionCallbacks {
+        void onConnected(Bundle bundle);
+
+        void onConnectionSuspended(int cause);
+    }
+
+    public interface OnConnectionFailedListener {
+        void onConnectionFailed(ConnectionResult result);
+    }
+
+    private boolean mConnected = false;
+
+    public boolean isConnected() {
+        return mConnected;
+    }
+
+    public boolean isConnecting() {
+        return false;
+    }
+
+    public void connect() {
+        mConnected = true;
+    }
+
+    public void disconnect() {
+        mConnected = false;
+    }
+
+    public static final class Builder {
+
+        public Builder(Context context) {
+        }
+
+        public Builder addApi(Object api) {
+            return this;
+        }
+
+        public Builder addConnectionCallbacks(ConnectionCallbacks callbacks) {
+            return this;
+        }
+
+        public Builder addOnConnectionFailedListener(OnConnectionFailedListener listener) {
+            return this;
+        }
+
+        public GoogleApiClient build() {
+            return new GoogleApiClient();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.google.android.gms.location;
+
+public final class LocationRequest {
+
+    public static final int PRIORITY_HIGH_ACCURACY = 100;
+    public static final int PRIORITY_BALANCED_POWER_ACCURACY = 102;
+    public static final int PRIORITY_LOW_POWER = 104;
+    public static final int PRIORITY_NO_POWER = 105;
+
+    private int mPriority = PRIORITY_BALANCED_POWER_ACCURACY;
+    private long mInterval;
+    private long mFastestInterval;
+    private long mMaxWaitTime;
+    private float mSmallestDisplacement;
+
+    public static LocationRequest create() {
+        return new LocationRequest();
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public LocationRequest setPriority(int priority) {
+        mPriority = priority;
+        return this;
+    }
+
+    public long getInterval() {
+        return mInterval;
+    }
+
+    public LocationRequest setInterval(long millis) {
+        mInterval = millis;
+        return this;
+    }
+
+    public long getFastestInterval() {
+        return mFastestInterval;
+    }
+
+    public LocationRequest setFastestInterval(long millis) {
+        mFastestInterval = millis;
+        return this;
+    }
+
+    public long getMaxWaitTime() {
+        return mMaxWaitTime;
+    }
+
+    public LocationRequest setMaxWaitTime(long millis) {
+        mMaxWaitTime = millis;
+        return this;
+    }
+
+    public float getSmallestDisplacement() {
+        return mSmallestDisplacement;
+    }
+
+    public LocationRequest setSmallestDisplacement(float meters) {
+        mSmallestDisplacement = meters;
+        return this;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.google.android.gms.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CancellationTokenSource {
+
+    private final List<OnTokenCanceledListener> mListeners = new ArrayList<OnTokenCanceledListener>();
+    private boolean mCancelled = false;
+
+    private final CancellationToken mToken = new CancellationToken() {
+        @Override
+        public boolean isCancellationRequested() {
+            synchronized (CancellationTokenSource.this) {
+                return mCancelled;
+            }
+        }
+
+        @Override
+        public CancellationToken onCanceledRequested(OnTokenCanceledListener listener) {
+            boolean cancelled;
+            synchronized (CancellationTokenSource.this) {
+                cancelled = mCancelled;
+                if (!cancelled) {
+                    mListeners.add(listener);
+                }
+            }
+            if (cancelled) {
+                listener.onCanceled();
+            }
+            return this;
+        }
+    };
+
+    public CancellationToken getToken() {
+        return mToken;
+    }
+
+    public void cancel() {
+        List<OnTokenCanceledListener> listeners;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            listeners = new ArrayList<OnTokenCanceledListener>(mListeners);
+            mListeners.clear();
+        }
+        for (OnTokenCanceledListener listener : listeners) {
+            listener.onCanceled();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package com.google.android.gms.tasks;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A task already completed with its result.
+ */
+public class Task<T> {
+
+    private final T mResult;
+
+    public Task(T result) {
+        mResult = result;
+    }
+
+    public boolean isComplete() {
+        return true;
+    }
+
+    public boolean isSuccessful() {
+        return true;
+    }
+
+    public T getResult() {
+        return mResult;
+    }
+
+    public Task<T> addOnCompleteListener(Executor executor,
+                                         final OnCompleteListener<T> listener) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onComplete(Task.this);
+            }
+        });
+        return this;
+    }
+
+    public Task<T> addOnSuccessListener(OnSuccessListener<? super T> listener) {
+        listener.onSuccess(mResult);
+        return this;
+    }
+
+    public Task<T> addOnSuccessListener(Executor executor,
+                                        final OnSuccessListener<? super T> listener) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onSuccess(mResult);
+            }
+        });
+        return this;
+    }
+
+    public Task<T> addOnFailureListener(OnFailureListener listener) {
+        return this;
+    }
+
+    public Task<T> addOnFailureListener(Executor executor, OnFailureListener listener) {
+        return this;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package org.apache.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Base64;
+
+/**
+ * Encodes the messages like the Cordova class: JSON when the result is
+ * built, strings when the bridge reads them, binary data as base64.
+ */
+public class PluginResult {
+
+    public enum Status {
+        NO_RESULT,
+        OK,
+        CLASS_NOT_FOUND_EXCEPTION,
+        ILLEGAL_ACCESS_EXCEPTION,
+        INSTANTIATION_EXCEPTION,
+        MALFORMED_URL_EXCEPTION,
+        IO_EXCEPTION,
+        INVALID_ACTION,
+        JSON_EXCEPTION,
+        ERROR
+    }
+
+    private final int mStatus;
+    private boolean mKeepCallback = false;
+    private String mStrMessage;
+    private String mEncodedMessage;
+
+    public PluginResult(Status status) {
+        mStatus = status.ordinal();
+        mEncodedMessage = "null";
+    }
+
+    public PluginResult(Status status, String message) {
+        mStatus = status.ordinal();
+        mStrMessage = message;
+    }
+
+    public PluginResult(Status status, JSONArray message) {
+        mStatus = status.ordinal();
+        mEncodedMessage = message.toString();
+    }
+
+    public PluginResult(Status status, JSONObject message) {
+        mStatus = status.ordinal();
+        mEncodedMessage = message.toString();
+    }
+
+    public PluginResult(Status status, byte[] data) {
+        mStatus = status.ordinal();
+        mEncodedMessage = Base64.getEncoder().encodeToString(data);
+    }
+
+    public void setKeepCallback(boolean keepCallback) {
+        mKeepCallback = keepCallback;
+    }
+
+    public boolean getKeepCallback() {
+        return mKeepCallback;
+    }
+
+    public int getStatus() {
+        return mStatus;
+    }
+
+    public String getMessage() {
+        if (mEncodedMessage == null) {
+            mEncodedMessage = JSONObject.quote(mStrMessage);
+        }
+        return mEncodedMessage;
+    }
+}
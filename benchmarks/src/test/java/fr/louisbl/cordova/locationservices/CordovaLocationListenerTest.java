@@ -0,0 +1,218 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.tasks.CancellationToken;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CordovaLocationListenerTest {
+
+    /**
+     * Keeps the single fix requests, answered by the test.
+     */
+    private static class FakeSource implements LocationSource {
+
+        final List<Integer> priorities = new ArrayList<Integer>();
+        final List<CancellationToken> tokens = new ArrayList<CancellationToken>();
+        final List<SingleFixCallback> callbacks = new ArrayList<SingleFixCallback>();
+        // Counted down once the listener asked for its first single fix
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile Looper looper;
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public Location getLastLocation() {
+            return null;
+        }
+
+        @Override
+        public boolean awaitLastLocation(Runnable task, Looper looper) {
+            return false;
+        }
+
+        @Override
+        public void requestLocationUpdates(LocationRequest request, Listener listener,
+                                           Looper looper) {
+        }
+
+        @Override
+        public void removeLocationUpdates(Listener listener) {
+        }
+
+        @Override
+        public boolean getCurrentLocation(int priority, float maximumAccuracy,
+                                          CancellationToken token,
+                                          SingleFixCallback callback, Looper looper) {
+            priorities.add(priority);
+            tokens.add(token);
+            callbacks.add(callback);
+            this.looper = looper;
+            started.countDown();
+            return true;
+        }
+    }
+
+    private FakeSource mSource;
+    private CordovaLocationListener mListener;
+
+    @Before
+    public void setUp() {
+        mSource = new FakeSource();
+        mListener = new CordovaLocationListener(mSource, new CordovaLocationServices(),
+                "CordovaLocationListenerTest");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mListener.destroy();
+    }
+
+    private static OneShotRequest request(boolean highAccuracy, CallbackContext callbackContext)
+            throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("timeout", 60000);
+        JSONArray args = new JSONArray();
+        args.put(0);
+        args.put(highAccuracy);
+        args.put(options);
+        return new OneShotRequest(args, callbackContext);
+    }
+
+    /**
+     * Wait until the looper of the listener ran the tasks posted so far.
+     */
+    private void sync() throws Exception {
+        assertTrue(mSource.started.await(5, TimeUnit.SECONDS));
+        final CountDownLatch done = new CountDownLatch(1);
+        new Handler(mSource.looper).post(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private void answer(final int index, final Location location) throws Exception {
+        new Handler(mSource.looper).post(new Runnable() {
+            @Override
+            public void run() {
+                mSource.callbacks.get(index).onSingleFix(location);
+            }
+        });
+        sync();
+    }
+
+    private static Location location() {
+        Location loc = new Location("fused");
+        loc.setTime(System.currentTimeMillis());
+        loc.setLatitude(48.8566);
+        loc.setLongitude(2.3522);
+        loc.setAccuracy(10);
+        return loc;
+    }
+
+    @Test
+    public void concurrentRequestsShareOneSingleFix() throws Exception {
+        CallbackContext first = new CallbackContext();
+        CallbackContext second = new CallbackContext();
+        mListener.addRequest(request(false, first));
+        mListener.addRequest(request(false, second));
+        sync();
+        assertEquals(1, mSource.callbacks.size());
+
+        answer(0, location());
+        assertEquals(1, first.results);
+        assertEquals(1, second.results);
+        assertEquals(first.lastMessage, second.lastMessage);
+        assertEquals(0, mListener.size());
+    }
+
+    @Test
+    public void moreAccurateRequestStartsItsOwnSingleFix() throws Exception {
+        CallbackContext balanced = new CallbackContext();
+        CallbackContext high = new CallbackContext();
+        mListener.addRequest(request(false, balanced));
+        mListener.addRequest(request(true, high));
+        sync();
+        assertEquals(2, mSource.callbacks.size());
+        assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY,
+                (int) mSource.priorities.get(0));
+        assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, (int) mSource.priorities.get(1));
+        assertTrue(mSource.tokens.get(0).isCancellationRequested());
+
+        // The cancelled single fix answers nothing
+        answer(0, location());
+        assertEquals(0, balanced.results);
+
+        answer(1, location());
+        assertEquals(1, balanced.results);
+        assertEquals(1, high.results);
+    }
+
+    @Test
+    public void lessAccurateRequestJoinsTheSingleFixInFlight() throws Exception {
+        CallbackContext high = new CallbackContext();
+        CallbackContext balanced = new CallbackContext();
+        mListener.addRequest(request(true, high));
+        mListener.addRequest(request(false, balanced));
+        sync();
+        assertEquals(1, mSource.callbacks.size());
+
+        answer(0, location());
+        assertEquals(1, high.results);
+        assertEquals(1, balanced.results);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GeofenceTest {
+
+    // Meters in a degree of latitude
+    private static final double DEGREE = 111195;
+
+    private static Geofence circle(String id, double latitude, double longitude,
+                                   double radius) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("id", id);
+        o.put("latitude", latitude);
+        o.put("longitude", longitude);
+        o.put("radius", radius);
+        return new Geofence(o, null);
+    }
+
+    private static Geofence polygon(String id, double[][] vertices) throws Exception {
+        JSONArray array = new JSONArray();
+        for (double[] vertex : vertices) {
+            array.put(new JSONArray().put(vertex[0]).put(vertex[1]));
+        }
+        JSONObject o = new JSONObject();
+        o.put("id", id);
+        o.put("vertices", array);
+        return new Geofence(o, null);
+    }
+
+    @Test
+    public void circleContainsThePointsWithinItsRadius() throws Exception {
+        Geofence fence = circle("c", 48.85, 2.35, 100);
+        assertTrue(fence.contains(48.85, 2.35));
+        assertTrue(fence.contains(48.85 + 90 / DEGREE, 2.35));
+        assertFalse(fence.contains(48.85 + 110 / DEGREE, 2.35));
+        // A degree of longitude is shorter away from the equator
+        double cos = Math.cos(Math.toRadians(48.85));
+        assertTrue(fence.contains(48.85, 2.35 + 90 / DEGREE / cos));
+        assertFalse(fence.contains(48.85, 2.35 + 110 / DEGREE / cos));
+    }
+
+    @Test
+    public void polygonContainsThePointsInside() throws Exception {
+        Geofence square = polygon("s", new double[][]{{0, 0}, {0, 1}, {1, 1}, {1, 0}});
+        assertTrue(square.contains(0.5, 0.5));
+        assertFalse(square.contains(1.5, 0.5));
+        assertFalse(square.contains(0.5, -0.1));
+        assertFalse(square.contains(-0.1, 0.5));
+    }
+
+    @Test
+    public void concavePolygonExcludesItsNotch() throws Exception {
+        // An L: the north east quarter of the square is missing
+        Geofence l = polygon("l", new double[][]{
+                {0, 0}, {0, 2}, {1, 2}, {1, 1}, {2, 1}, {2, 0}});
+        assertTrue(l.contains(0.5, 1.5));
+        assertTrue(l.contains(1.5, 0.5));
+        assertFalse(l.contains(1.5, 1.5));
+    }
+
+    @Test
+    public void polygonRayThroughAVertexCountsOnce() throws Exception {
+        // The ray going east from the point passes through the east vertex
+        Geofence diamond = polygon("d", new double[][]{{0, 1}, {1, 2}, {2, 1}, {1, 0}});
+        assertTrue(diamond.contains(1, 1));
+        assertFalse(diamond.contains(1, -0.5));
+        assertFalse(diamond.contains(1, 2.5));
+    }
+
+    @Test
+    public void dwellFiresOnceAfterTheLoiteringDelay() throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("id", "w");
+        o.put("latitude", 0);
+        o.put("longitude", 0);
+        o.put("radius", 10);
+        o.put("loiteringDelay", 1000);
+        Geofence fence = new Geofence(o, null);
+
+        fence.enter(0);
+        assertFalse(fence.dwell(999));
+        assertTrue(fence.dwell(1000));
+        assertFalse(fence.dwell(2000));
+        fence.exit();
+        assertFalse(fence.dwell(3000));
+    }
+
+    @Test
+    public void indexFindsAZoneInEveryCellItOverlaps() throws Exception {
+        GeofenceIndex index = new GeofenceIndex(0.01, 256);
+        // Across the corner shared by four cells
+        Geofence fence = circle("corner", 0.01, 0.01, 200);
+        index.add(fence);
+
+        List<Geofence> candidates = new ArrayList<Geofence>();
+        double[][] points = {{0.0099, 0.0099}, {0.0099, 0.0101}, {0.0101, 0.0099}, {0.0101, 0.0101}};
+        for (double[] point : points) {
+            index.query(point[0], point[1], candidates);
+            assertEquals(1, candidates.size());
+        }
+        index.query(0.0201, 0.0201, candidates);
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test
+    public void indexCellsAreFlooredBelowZero() throws Exception {
+        GeofenceIndex index = new GeofenceIndex(0.01, 256);
+        index.add(circle("south-west", -0.005, -0.005, 10));
+
+        List<Geofence> candidates = new ArrayList<Geofence>();
+        index.query(-0.001, -0.001, candidates);
+        assertEquals(1, candidates.size());
+        index.query(0.001, 0.001, candidates);
+        assertTrue(candidates.isEmpty());
+        index.query(-0.001, 0.001, candidates);
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test
+    public void indexTestsLargeZonesAgainstEveryPoint() throws Exception {
+        GeofenceIndex index = new GeofenceIndex(0.01, 4);
+        Geofence large = circle("large", 0, 0, 10000);
+        index.add(large);
+
+        List<Geofence> candidates = new ArrayList<Geofence>();
+        index.query(45, 90, candidates);
+        assertEquals(1, candidates.size());
+
+        index.remove(large);
+        index.query(0, 0, candidates);
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test
+    public void indexRemovesAZoneFromEveryCell() throws Exception {
+        GeofenceIndex index = new GeofenceIndex(0.01, 256);
+        Geofence fence = circle("corner", 0.01, 0.01, 200);
+        Geofence other = circle("other", 0.0105, 0.0105, 10);
+        index.add(fence);
+        index.add(other);
+        index.remove(fence);
+
+        List<Geofence> candidates = new ArrayList<Geofence>();
+        index.query(0.0099, 0.0099, candidates);
+        assertTrue(candidates.isEmpty());
+        index.query(0.0105, 0.0105, candidates);
+        assertEquals(1, candidates.size());
+        assertEquals("other", candidates.get(0).getId());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeohashTest {
+
+    @Test
+    public void encodesTheReferencePoints() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("ezs42", Geohash.encode(42.6, -5.6, 5));
+    }
+
+    @Test
+    public void encodesTheCorners() {
+        assertEquals("s0000", Geohash.encode(0, 0, 5));
+        assertEquals("00000", Geohash.encode(-90, -180, 5));
+        assertEquals("zzzzz", Geohash.encode(90, 180, 5));
+    }
+
+    @Test
+    public void shorterHashesArePrefixes() {
+        String hash = Geohash.encode(48.8566, 2.3522, Geohash.MAX_PRECISION);
+        for (int precision = 1; precision < Geohash.MAX_PRECISION; precision++) {
+            assertTrue(hash.startsWith(Geohash.encode(48.8566, 2.3522, precision)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAZeroPrecision() {
+        Geohash.encode(0, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsATooLongPrecision() {
+        Geohash.encode(0, 0, Geohash.MAX_PRECISION + 1);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KalmanFilterTest {
+
+    // Degrees of latitude in a meter
+    private static final double METER = 1 / 111195.0;
+
+    private static Location fix(long time, double latitude, float accuracy) {
+        Location loc = new Location("test");
+        loc.setTime(time);
+        loc.setLatitude(latitude);
+        loc.setLongitude(2);
+        loc.setAccuracy(accuracy);
+        return loc;
+    }
+
+    @Test
+    public void firstFixIsReturnedAsIs() {
+        KalmanFilter filter = new KalmanFilter(3, 0, 0);
+        Location smoothed = filter.filter(fix(1000, 48, 10));
+        assertEquals(48, smoothed.getLatitude(), 1e-9);
+        assertEquals(2, smoothed.getLongitude(), 1e-9);
+        assertEquals(1000, smoothed.getTime());
+    }
+
+    @Test
+    public void smoothingReducesTheJitter() {
+        KalmanFilter filter = new KalmanFilter(0.5, 0, 0);
+        double worst = 0;
+        for (int i = 0; i < 60; i++) {
+            // 20 m of jitter around a fixed point
+            double noise = (i % 2 == 0 ? 20 : -20) * METER;
+            Location smoothed = filter.filter(fix(i * 1000, 48 + noise, 20));
+            if (i >= 30) {
+                worst = Math.max(worst, Math.abs(smoothed.getLatitude() - 48) / METER);
+            }
+        }
+        assertTrue("error " + worst, worst < 10);
+    }
+
+    @Test
+    public void smoothedFixIsReused() {
+        KalmanFilter filter = new KalmanFilter(3, 0, 0);
+        Location first = filter.filter(fix(1000, 48, 10));
+        Location second = filter.filter(fix(2000, 48 + 5 * METER, 10));
+        assertSame(first, second);
+        assertEquals(2000, second.getTime());
+    }
+
+    @Test
+    public void rejectsImpossibleJumps() {
+        KalmanFilter filter = new KalmanFilter(3, 50, 0);
+        assertNotNull(filter.filter(fix(1000, 48, 5)));
+        // 10 km in a second
+        assertNull(filter.filter(fix(2000, 48 + 10000 * METER, 5)));
+        assertNotNull(filter.filter(fix(3000, 48 + 10 * METER, 5)));
+    }
+
+    @Test
+    public void startsAgainAfterRepeatedRejections() {
+        KalmanFilter filter = new KalmanFilter(3, 50, 0);
+        filter.filter(fix(1000, 48, 5));
+        double moved = 48 + 10000 * METER;
+        assertNull(filter.filter(fix(2000, moved, 5)));
+        assertNull(filter.filter(fix(3000, moved, 5)));
+        assertNull(filter.filter(fix(4000, moved, 5)));
+        // The device really moved, follow it
+        Location smoothed = filter.filter(fix(5000, moved, 5));
+        assertEquals(moved, smoothed.getLatitude(), 1e-9);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void quantilesAreTheBoundsOfTheirBuckets() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(10, 4);
+        for (int i = 0; i < 9; i++) {
+            histogram.record(5);
+        }
+        histogram.record(70);
+
+        JSONObject o = histogram.toJSON();
+        assertEquals(10, o.getLong("count"));
+        assertEquals(115, o.getLong("sum"));
+        assertEquals(10, o.getLong("p50"));
+        assertEquals(10, o.getLong("p90"));
+        assertEquals(70, o.getLong("p99"));
+    }
+
+    @Test
+    public void quantilesDoNotExceedTheMaximum() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(10, 4);
+        histogram.record(3);
+        histogram.record(12);
+
+        JSONObject o = histogram.toJSON();
+        assertEquals(12, o.getLong("max"));
+        assertEquals(10, o.getLong("p50"));
+        assertEquals(12, o.getLong("p99"));
+    }
+
+    @Test
+    public void valuesAboveEveryBoundAreReportedAsTheMaximum() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(10, 2);
+        histogram.record(500);
+
+        JSONObject o = histogram.toJSON();
+        assertEquals(500, o.getLong("p50"));
+        assertEquals(1, o.getJSONArray("counts").getLong(2));
+    }
+
+    @Test
+    public void resetClearsEverything() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(10, 2);
+        histogram.record(15);
+        histogram.reset();
+
+        JSONObject o = histogram.toJSON();
+        assertEquals(0, o.getLong("count"));
+        assertEquals(0, o.getLong("max"));
+        assertEquals(0, o.getLong("p99"));
+    }
+}
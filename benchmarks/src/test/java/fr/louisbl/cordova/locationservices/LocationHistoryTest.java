@@ -0,0 +1,125 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocationHistoryTest {
+
+    private static Location fix(long time, double latitude) {
+        Location loc = new Location("test");
+        loc.setTime(time);
+        loc.setLatitude(latitude);
+        loc.setLongitude(2);
+        loc.setAccuracy(5);
+        return loc;
+    }
+
+    private static int count(byte[] encoded) {
+        return encoded.length / (8 * LocationCodec.COLUMNS);
+    }
+
+    /**
+     * @return A value of a fix in the LocationCodec format
+     */
+    private static double value(byte[] encoded, int column, int index) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded).order(ByteOrder.LITTLE_ENDIAN);
+        return buffer.getDouble((column * count(encoded) + index) * 8);
+    }
+
+    private static long time(byte[] encoded, int index) {
+        return (long) value(encoded, 6, index);
+    }
+
+    @Test
+    public void keepsTheNewestFixesOldestFirst() {
+        LocationHistory history = new LocationHistory(3);
+        for (int i = 1; i <= 5; i++) {
+            history.put(fix(i * 1000, i));
+        }
+        assertEquals(3, history.size());
+
+        byte[] all = history.query(0, 10);
+        assertEquals(3, count(all));
+        assertEquals(3000, time(all, 0));
+        assertEquals(4000, time(all, 1));
+        assertEquals(5000, time(all, 2));
+        assertEquals(3, value(all, 0, 0), 0);
+        assertEquals(2, value(all, 1, 0), 0);
+    }
+
+    @Test
+    public void queryReturnsTheFixesNewerThanSince() {
+        LocationHistory history = new LocationHistory(10);
+        for (int i = 1; i <= 5; i++) {
+            history.put(fix(i * 1000, i));
+        }
+        byte[] newer = history.query(3000, 10);
+        assertEquals(2, count(newer));
+        assertEquals(4000, time(newer, 0));
+        assertEquals(5000, time(newer, 1));
+    }
+
+    @Test
+    public void queryReturnsTheNewestMaxCountFixes() {
+        LocationHistory history = new LocationHistory(10);
+        for (int i = 1; i <= 5; i++) {
+            history.put(fix(i * 1000, i));
+        }
+        byte[] newest = history.query(0, 2);
+        assertEquals(2, count(newest));
+        assertEquals(4000, time(newest, 0));
+        assertEquals(5000, time(newest, 1));
+    }
+
+    @Test
+    public void ignoresTheFixesOlderThanTheNewest() {
+        LocationHistory history = new LocationHistory(10);
+        history.put(fix(2000, 2));
+        history.put(fix(1000, 1));
+        assertEquals(1, history.size());
+    }
+
+    @Test
+    public void missingValuesAreNaN() {
+        LocationHistory history = new LocationHistory(1);
+        history.put(fix(1000, 1));
+        byte[] encoded = history.query(0, 1);
+        // Altitude and heading
+        assertTrue(Double.isNaN(value(encoded, 2, 0)));
+        assertTrue(Double.isNaN(value(encoded, 4, 0)));
+    }
+
+    @Test
+    public void clearEmptiesTheHistory() {
+        LocationHistory history = new LocationHistory(3);
+        history.put(fix(1000, 1));
+        history.clear();
+        assertEquals(0, history.size());
+        assertEquals(0, history.query(0, 10).length);
+    }
+}
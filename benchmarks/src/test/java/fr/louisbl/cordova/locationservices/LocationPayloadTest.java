@@ -0,0 +1,92 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LocationPayloadTest {
+
+    private CordovaLocationServices mOwner;
+    private LocationPayload mPayload;
+
+    @Before
+    public void setUp() {
+        mOwner = new CordovaLocationServices();
+        Location loc = new Location("fused");
+        loc.setTime(1000);
+        loc.setLatitude(48.8566);
+        loc.setLongitude(2.3522);
+        mPayload = new LocationPayload(loc, mOwner);
+    }
+
+    private long saved() {
+        return mOwner.getStats().savedEncodings.get();
+    }
+
+    private long encodings() throws Exception {
+        return mOwner.getStats().encode.toJSON().getLong("count");
+    }
+
+    @Test
+    public void sharesOneResultPerKind() {
+        assertSame(mPayload.getResult(true), mPayload.getResult(true));
+        assertSame(mPayload.getResult(false), mPayload.getResult(false));
+        assertNotSame(mPayload.getResult(true), mPayload.getResult(false));
+        assertSame(mPayload.getCompactResult(), mPayload.getCompactResult());
+    }
+
+    @Test
+    public void countsEveryConsumerAfterTheFirst() {
+        mPayload.getResult(true);
+        assertEquals(0, saved());
+        mPayload.getResult(true);
+        mPayload.getResult(false);
+        assertEquals(2, saved());
+    }
+
+    @Test
+    public void countsTheSameWhateverComesFirst() throws Exception {
+        mPayload.getJSON();
+        mPayload.getResult(true);
+        assertEquals(1, saved());
+
+        LocationPayload other = new LocationPayload(mPayload.getLocation(), mOwner);
+        other.getResult(true);
+        other.getJSON();
+        assertEquals(2, saved());
+        assertEquals(2, encodings());
+    }
+
+    @Test
+    public void compactResultIsAnEncodingOfItsOwn() {
+        mPayload.getJSON();
+        mPayload.getCompactResult();
+        assertEquals(0, saved());
+        mPayload.getCompactResult();
+        mPayload.getJSON();
+        assertEquals(2, saved());
+    }
+}
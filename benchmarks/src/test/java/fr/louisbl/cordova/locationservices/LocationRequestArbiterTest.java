@@ -0,0 +1,110 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocationRequestArbiterTest {
+
+    private static LocationWatch watch(int priority, long interval, long fastInterval,
+                                       JSONObject options) {
+        return new LocationWatch("w" + interval, null, priority, interval, fastInterval, options);
+    }
+
+    @Test
+    public void defaultRequestWithoutWatches() {
+        LocationRequestArbiter arbiter = new LocationRequestArbiter();
+        LocationRequest request = arbiter.getRequest();
+        assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, request.getPriority());
+        assertEquals(LocationUtils.UPDATE_INTERVAL_IN_MILLISECONDS, request.getInterval());
+        assertFalse(arbiter.update(Collections.<LocationWatch>emptyList(), false));
+    }
+
+    @Test
+    public void mergesTheHighestPriorityAndTightestIntervals() throws Exception {
+        List<LocationWatch> watches = new ArrayList<LocationWatch>();
+        watches.add(watch(LocationRequest.PRIORITY_LOW_POWER, 60000, 30000, null));
+        watches.add(watch(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, 20000, 10000, null));
+
+        LocationRequestArbiter arbiter = new LocationRequestArbiter();
+        assertTrue(arbiter.update(watches, false));
+        LocationRequest request = arbiter.getRequest();
+        assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, request.getPriority());
+        assertEquals(20000, request.getInterval());
+        assertEquals(10000, request.getFastestInterval());
+
+        // Nothing changed
+        assertFalse(arbiter.update(watches, false));
+    }
+
+    @Test
+    public void batchesAndFiltersOnlyWhenEveryWatchAccepts() throws Exception {
+        JSONObject batched = new JSONObject();
+        batched.put("maxWaitTime", 60000);
+        batched.put("minDistance", 50);
+        JSONObject filtered = new JSONObject();
+        filtered.put("maxWaitTime", 30000);
+        filtered.put("minDistance", 20);
+
+        List<LocationWatch> watches = new ArrayList<LocationWatch>();
+        watches.add(watch(LocationRequest.PRIORITY_HIGH_ACCURACY, 10000, 1000, batched));
+        watches.add(watch(LocationRequest.PRIORITY_HIGH_ACCURACY, 10001, 1000, filtered));
+
+        LocationRequestArbiter arbiter = new LocationRequestArbiter();
+        arbiter.update(watches, false);
+        assertEquals(30000, arbiter.getRequest().getMaxWaitTime());
+        assertEquals(20, arbiter.getRequest().getSmallestDisplacement(), 0);
+
+        watches.add(watch(LocationRequest.PRIORITY_HIGH_ACCURACY, 10002, 1000, null));
+        assertTrue(arbiter.update(watches, false));
+        assertEquals(0, arbiter.getRequest().getMaxWaitTime());
+        assertEquals(0, arbiter.getRequest().getSmallestDisplacement(), 0);
+    }
+
+    @Test
+    public void oneShotRequestsCountAsADefaultWatch() throws Exception {
+        JSONObject batched = new JSONObject();
+        batched.put("maxWaitTime", 60000);
+        List<LocationWatch> watches = new ArrayList<LocationWatch>();
+        watches.add(watch(LocationRequest.PRIORITY_LOW_POWER, 60000, 30000, batched));
+
+        LocationRequestArbiter arbiter = new LocationRequestArbiter();
+        arbiter.update(watches, true);
+        LocationRequest request = arbiter.getRequest();
+        assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, request.getPriority());
+        assertEquals(LocationUtils.UPDATE_INTERVAL_IN_MILLISECONDS, request.getInterval());
+        assertEquals(0, request.getMaxWaitTime());
+
+        // Back to the watch once the requests are answered
+        assertTrue(arbiter.update(watches, false));
+        assertEquals(LocationRequest.PRIORITY_LOW_POWER, arbiter.getRequest().getPriority());
+        assertEquals(60000, arbiter.getRequest().getMaxWaitTime());
+    }
+}
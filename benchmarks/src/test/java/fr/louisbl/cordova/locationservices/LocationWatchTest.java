@@ -0,0 +1,248 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LocationWatchTest {
+
+    // Degrees of latitude in a meter
+    private static final double METER = 1 / 111195.0;
+
+    private static LocationWatch watch(long interval, long fastInterval, JSONObject options) {
+        return new LocationWatch("w", null, LocationRequest.PRIORITY_HIGH_ACCURACY,
+                interval, fastInterval, options);
+    }
+
+    private static Location fix(long time, double north) {
+        Location loc = new Location("test");
+        loc.setTime(time);
+        loc.setLatitude(48 + north * METER);
+        loc.setLongitude(2);
+        loc.setAccuracy(5);
+        return loc;
+    }
+
+    @Test
+    public void firstFixIsDue() {
+        assertTrue(watch(10000, 1000, null).isDue(fix(0, 0)));
+    }
+
+    @Test
+    public void downSamplesToTheIntervalWithSomeJitter() {
+        LocationWatch watch = watch(10000, 1000, null);
+        watch.delivered(fix(0, 0));
+        assertFalse(watch.isDue(fix(1000, 0)));
+        assertFalse(watch.isDue(fix(8999, 0)));
+        // A tenth of the interval early
+        assertTrue(watch.isDue(fix(9000, 0)));
+    }
+
+    @Test
+    public void fastIntervalBoundsTheJitter() {
+        LocationWatch watch = watch(10000, 9500, null);
+        watch.delivered(fix(0, 0));
+        assertFalse(watch.isDue(fix(9000, 0)));
+        assertTrue(watch.isDue(fix(9500, 0)));
+    }
+
+    @Test
+    public void minTimeIsEnforced() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("minTime", 20000);
+        LocationWatch watch = watch(10000, 1000, options);
+        watch.delivered(fix(0, 0));
+        assertFalse(watch.isDue(fix(10000, 0)));
+        assertTrue(watch.isDue(fix(20000, 0)));
+    }
+
+    @Test
+    public void minDistanceIsEnforced() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("minDistance", 50);
+        LocationWatch watch = watch(10000, 1000, options);
+        watch.delivered(fix(0, 0));
+        assertFalse(watch.isDue(fix(10000, 30)));
+        assertTrue(watch.isDue(fix(10000, 60)));
+    }
+
+    @Test
+    public void minDistanceIsMeasuredFromTheLastDelivery() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("minDistance", 50);
+        LocationWatch watch = watch(1000, 1000, options);
+        watch.delivered(fix(0, 0));
+        // Creeping 30 m at a time, delivered once 50 m away
+        assertFalse(watch.isDue(fix(1000, 30)));
+        assertTrue(watch.isDue(fix(2000, 60)));
+    }
+
+    @Test
+    public void batchIsFullAtBatchSize() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("batchSize", 3);
+        LocationWatch watch = watch(1000, 1000, options);
+        assertTrue(watch.isBatched());
+        assertFalse(watch.isBatchFull(0));
+
+        watch.addToBatch(new LocationPayload(fix(1000, 0), null));
+        watch.addToBatch(new LocationPayload(fix(2000, 0), null));
+        assertFalse(watch.isBatchFull(2000));
+        watch.addToBatch(new LocationPayload(fix(3000, 0), null));
+        assertTrue(watch.isBatchFull(3000));
+
+        List<LocationPayload> batch = watch.drainBatch();
+        assertEquals(3, batch.size());
+        assertEquals(1000, batch.get(0).getLocation().getTime());
+        assertFalse(watch.hasBatch());
+    }
+
+    @Test
+    public void batchIsFullWhenItsOldestFixIsAboutMaxWaitTimeOld() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("maxWaitTime", 10000);
+        LocationWatch watch = watch(1000, 1000, options);
+        watch.addToBatch(new LocationPayload(fix(1000, 0), null));
+        assertFalse(watch.isBatchFull(9999));
+        // A tenth of the wait early
+        assertTrue(watch.isBatchFull(10000));
+        assertEquals(10000, watch.getBatchDeadline());
+    }
+
+    @Test
+    public void batchWithoutMaxWaitTimeHasNoDeadline() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("batchSize", 3);
+        LocationWatch watch = watch(1000, 1000, options);
+        assertEquals(Long.MAX_VALUE, watch.getBatchDeadline());
+        watch.addToBatch(new LocationPayload(fix(1000, 0), null));
+        assertEquals(Long.MAX_VALUE, watch.getBatchDeadline());
+    }
+
+    @Test
+    public void batchDropsTheOldestFixesBeyondTheBuffer() {
+        LocationWatch watch = watch(1000, 1000, null);
+        assertFalse(watch.isBatched());
+        for (int i = 0; i < LocationUtils.BATCH_BUFFER_SIZE; i++) {
+            assertFalse(watch.addToBatch(new LocationPayload(fix(i, 0), null)));
+        }
+        assertTrue(watch.addToBatch(new LocationPayload(fix(LocationUtils.BATCH_BUFFER_SIZE, 0), null)));
+
+        List<LocationPayload> batch = watch.drainBatch();
+        assertEquals(LocationUtils.BATCH_BUFFER_SIZE, batch.size());
+        assertEquals(1, batch.get(0).getLocation().getTime());
+    }
+
+    private static JSONObject delivery(String delivery) throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("delivery", delivery);
+        options.put("queueSize", 3);
+        return options;
+    }
+
+    @Test
+    public void allDeliveryIsNeverBlocked() throws Exception {
+        LocationWatch watch = watch(1000, 1000, delivery("all"));
+        watch.inFlight(0);
+        watch.inFlight(0);
+        assertFalse(watch.isAcknowledged());
+        assertFalse(watch.isBlocked(0));
+    }
+
+    @Test
+    public void blockedWhileMaxInFlightResultsAreNotAcknowledged() throws Exception {
+        JSONObject options = delivery("latest");
+        options.put("maxInFlight", 2);
+        LocationWatch watch = watch(1000, 1000, options);
+        assertTrue(watch.isAcknowledged());
+
+        watch.inFlight(0);
+        assertFalse(watch.isBlocked(0));
+        watch.inFlight(100);
+        assertTrue(watch.isBlocked(100));
+
+        assertEquals(400, watch.acknowledged(500));
+        assertFalse(watch.isBlocked(500));
+        // Nothing in flight left to acknowledge
+        watch.acknowledged(600);
+        assertEquals(-1, watch.acknowledged(700));
+    }
+
+    @Test
+    public void lostAcknowledgementUnblocksAfterTheAckTimeout() throws Exception {
+        LocationWatch watch = watch(1000, 1000, delivery("queue"));
+        watch.inFlight(1000);
+        assertTrue(watch.isBlocked(1000 + LocationUtils.ACK_TIMEOUT - 1));
+        assertFalse(watch.isBlocked(1000 + LocationUtils.ACK_TIMEOUT));
+        // The lost results are forgotten
+        watch.inFlight(20000);
+        assertTrue(watch.isBlocked(20000));
+    }
+
+    @Test
+    public void latestDeliveryHoldsTheNewestFixOnly() throws Exception {
+        LocationWatch watch = watch(1000, 1000, delivery("latest"));
+        assertEquals(0, watch.hold(new LocationPayload(fix(1000, 0), null)));
+        assertEquals(1, watch.hold(new LocationPayload(fix(2000, 0), null)));
+        assertEquals(2000, watch.nextPending().getLocation().getTime());
+        assertFalse(watch.hasPending());
+    }
+
+    @Test
+    public void queueDeliveryHoldsTheQueueSizeNewestFixesInOrder() throws Exception {
+        LocationWatch watch = watch(1000, 1000, delivery("queue"));
+        int dropped = 0;
+        for (int i = 1; i <= 5; i++) {
+            dropped += watch.hold(new LocationPayload(fix(i * 1000, 0), null));
+        }
+        assertEquals(2, dropped);
+        assertEquals(3000, watch.nextPending().getLocation().getTime());
+        assertEquals(4000, watch.nextPending().getLocation().getTime());
+        assertEquals(5000, watch.nextPending().getLocation().getTime());
+        assertNull(watch.nextPending());
+    }
+
+    @Test
+    public void pausedBufferFollowsTheDeliveryPolicy() throws Exception {
+        String[] deliveries = {"all", "latest", "queue"};
+        int[] kept = {5, 1, 3};
+        for (int d = 0; d < deliveries.length; d++) {
+            LocationWatch watch = watch(1000, 1000, delivery(deliveries[d]));
+            for (int i = 1; i <= 5; i++) {
+                watch.addToBatch(new LocationPayload(fix(i * 1000, 0), null));
+            }
+            assertEquals(5 - kept[d], watch.coalesceBatch());
+            List<LocationPayload> batch = watch.drainBatch();
+            assertEquals(kept[d], batch.size());
+            assertEquals(5000, batch.get(batch.size() - 1).getLocation().getTime());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MotionSchedulerTest {
+
+    private static Location fix(long time, double latitude, float speed) {
+        Location loc = new Location("fused");
+        loc.setTime(time);
+        loc.setLatitude(latitude);
+        loc.setLongitude(2.3522);
+        loc.setAccuracy(10);
+        if (speed >= 0) {
+            loc.setSpeed(speed);
+        }
+        return loc;
+    }
+
+    private static MotionScheduler scheduler() {
+        return new MotionScheduler(LocationRequest.PRIORITY_HIGH_ACCURACY, 5000, 1000);
+    }
+
+    /**
+     * Feed the scheduler fixes at rest every 10 s until the tier is reached.
+     *
+     * @return The time of the last fix
+     */
+    private static long rest(MotionScheduler scheduler, long time, int tier) {
+        while (scheduler.getTier() != tier) {
+            time += 10000;
+            scheduler.observe(fix(time, 48.8566, 0));
+        }
+        return time;
+    }
+
+    @Test
+    public void movingTierUsesTheParametersOfTheWatch() {
+        MotionScheduler scheduler = scheduler();
+        assertFalse(scheduler.observe(fix(0, 48.8566, 5)));
+        assertEquals(MotionScheduler.TIER_MOVING, scheduler.getTier());
+        assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, scheduler.getPriority());
+        assertEquals(5000, scheduler.getInterval());
+        assertEquals(1000, scheduler.getFastInterval());
+    }
+
+    @Test
+    public void stepsDownOneTierAtATime() {
+        MotionScheduler scheduler = scheduler();
+        long time = rest(scheduler, 0, MotionScheduler.TIER_SLOW);
+        assertTrue(time >= LocationUtils.ADAPTIVE_STEP_DOWN_DELAY);
+        assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, scheduler.getPriority());
+        assertEquals(LocationUtils.ADAPTIVE_SLOW_INTERVAL, scheduler.getInterval());
+
+        long slow = time;
+        time = rest(scheduler, time, MotionScheduler.TIER_STATIONARY);
+        assertTrue(time - slow >= LocationUtils.ADAPTIVE_STEP_DOWN_DELAY);
+        assertEquals(LocationUtils.ADAPTIVE_STATIONARY_INTERVAL, scheduler.getInterval());
+    }
+
+    @Test
+    public void stationaryTierKeepsBalancedPower() {
+        MotionScheduler scheduler = scheduler();
+        rest(scheduler, 0, MotionScheduler.TIER_STATIONARY);
+        assertEquals("stationary", scheduler.getTierName());
+        assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, scheduler.getPriority());
+    }
+
+    @Test
+    public void stepsBackUpAtOnceWhenMoving() {
+        MotionScheduler scheduler = scheduler();
+        long time = rest(scheduler, 0, MotionScheduler.TIER_STATIONARY);
+        assertTrue(scheduler.observe(fix(time + 10000, 48.8566, 10)));
+        assertEquals(MotionScheduler.TIER_MOVING, scheduler.getTier());
+        assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, scheduler.getPriority());
+    }
+
+    @Test
+    public void estimatesTheSpeedFromTheDistanceWithoutReportedSpeed() {
+        MotionScheduler scheduler = scheduler();
+        scheduler.observe(fix(0, 48.8566, -1));
+        // About 100 m north in 10 s
+        scheduler.observe(fix(10000, 48.8566 + 0.0009, -1));
+        assertEquals(10, scheduler.getSpeed(), 0.5);
+    }
+
+    @Test
+    public void ignoresMovesWithinTheAccuracy() {
+        MotionScheduler scheduler = scheduler();
+        scheduler.observe(fix(0, 48.8566, -1));
+        // About 5 m, within the 10 m accuracy
+        scheduler.observe(fix(10000, 48.8566 + 0.000045, -1));
+        assertEquals(0, scheduler.getSpeed(), 0);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PolylineEncoderTest {
+
+    private static Location point(double latitude, double longitude) {
+        Location loc = new Location("test");
+        loc.setLatitude(latitude);
+        loc.setLongitude(longitude);
+        return loc;
+    }
+
+    @Test
+    public void encodesTheReferencePolyline() {
+        // The example of the Encoded Polyline Algorithm Format documentation
+        PolylineEncoder encoder = new PolylineEncoder();
+        StringBuilder out = new StringBuilder();
+        encoder.encode(point(38.5, -120.2), out);
+        encoder.encode(point(40.7, -120.95), out);
+        encoder.encode(point(43.252, -126.453), out);
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", out.toString());
+    }
+
+    @Test
+    public void chunksConcatenateIntoThePolyline() {
+        PolylineEncoder encoder = new PolylineEncoder();
+        StringBuilder first = new StringBuilder();
+        encoder.encode(point(38.5, -120.2), first);
+        assertEquals("_p~iF~ps|U", first.toString());
+
+        StringBuilder second = new StringBuilder();
+        encoder.encode(point(40.7, -120.95), second);
+        assertEquals("_ulLnnqC", second.toString());
+    }
+
+    @Test
+    public void encodesTheSamePointAsZeroDeltas() {
+        PolylineEncoder encoder = new PolylineEncoder();
+        StringBuilder out = new StringBuilder();
+        encoder.encode(point(0, 0), out);
+        encoder.encode(point(0, 0), out);
+        assertEquals("????", out.toString());
+    }
+
+    @Test
+    public void roundsToFiveDecimals() {
+        StringBuilder a = new StringBuilder();
+        new PolylineEncoder().encode(point(38.500004, -120.200004), a);
+        assertEquals("_p~iF~ps|U", a.toString());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.os.HandlerThread;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayLocationSourceTest {
+
+    /**
+     * Keeps the replayed fixes.
+     */
+    private static class Recorder implements LocationSource.Listener {
+
+        final List<Location> fixes = new ArrayList<Location>();
+        final CountDownLatch done;
+
+        Recorder(int count) {
+            done = new CountDownLatch(count);
+        }
+
+        @Override
+        public synchronized void onLocationChanged(Location location) {
+            fixes.add(location);
+            done.countDown();
+        }
+
+        @Override
+        public void onLocationsChanged(List<Location> locations) {
+            for (Location location : locations) {
+                onLocationChanged(location);
+            }
+        }
+    }
+
+    private HandlerThread mThread;
+
+    @Before
+    public void setUp() {
+        mThread = new HandlerThread("ReplayLocationSourceTest");
+        mThread.start();
+    }
+
+    @After
+    public void tearDown() {
+        mThread.quitSafely();
+    }
+
+    private static List<Location> trace(long... times) {
+        List<Location> trace = new ArrayList<Location>();
+        for (int i = 0; i < times.length; i++) {
+            Location loc = new Location("gps");
+            loc.setTime(times[i]);
+            loc.setLatitude(48.8566 + i * 1e-4);
+            loc.setLongitude(2.3522);
+            trace.add(loc);
+        }
+        return trace;
+    }
+
+    private List<Location> replay(ReplayLocationSource source, int count) throws Exception {
+        Recorder recorder = new Recorder(count);
+        source.requestLocationUpdates(LocationRequest.create(), recorder, mThread.getLooper());
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        source.removeLocationUpdates(recorder);
+        synchronized (recorder) {
+            return new ArrayList<Location>(recorder.fixes);
+        }
+    }
+
+    @Test
+    public void fasterReplayKeepsTheIntervalsOfTheTrace() throws Exception {
+        ReplayLocationSource source = new ReplayLocationSource(
+                trace(1000000, 1001000, 1003000), 100, false);
+        long start = System.currentTimeMillis();
+        long uptime = System.nanoTime();
+        List<Location> fixes = replay(source, 3);
+        long elapsed = (System.nanoTime() - uptime) / 1000000;
+
+        assertTrue(elapsed < 3000);
+        assertTrue(fixes.get(0).getTime() >= start);
+        assertEquals(1000, fixes.get(1).getTime() - fixes.get(0).getTime());
+        assertEquals(2000, fixes.get(2).getTime() - fixes.get(1).getTime());
+        assertEquals(48.8568, fixes.get(2).getLatitude(), 1e-9);
+    }
+
+    @Test
+    public void loopingReplayKeepsTheTimeGoingForward() throws Exception {
+        ReplayLocationSource source = new ReplayLocationSource(
+                trace(0, 500), 100, true);
+        List<Location> fixes = replay(source, 5);
+
+        for (int i = 1; i < fixes.size(); i++) {
+            assertTrue(fixes.get(i).getTime() > fixes.get(i - 1).getTime());
+        }
+        assertEquals(source.getLastLocation().getTime(), fixes.get(4).getTime());
+    }
+
+    @Test
+    public void resumedReplayDoesNotGoBackInTime() throws Exception {
+        ReplayLocationSource source = new ReplayLocationSource(
+                trace(0, 60000, 120000, 180000), 1000, false);
+        List<Location> first = replay(source, 1);
+        List<Location> rest = replay(source, 1);
+
+        assertTrue(rest.get(0).getTime() >= first.get(first.size() - 1).getTime());
+    }
+}
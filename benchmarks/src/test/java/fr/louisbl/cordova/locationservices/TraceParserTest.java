@@ -0,0 +1,179 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TraceParserTest {
+
+    private static final double DELTA = 1e-6;
+    // 2020-01-01T00:00:00Z
+    private static final long NEW_YEAR = 1577836800000L;
+
+    private static List<Location> parse(String trace) throws Exception {
+        return TraceParser.parse(new StringReader(trace));
+    }
+
+    /**
+     * @return The sentence with its checksum
+     */
+    private static String nmea(String sentence) {
+        int sum = 0;
+        for (int i = 1; i < sentence.length(); i++) {
+            sum ^= sentence.charAt(i);
+        }
+        return String.format("%s*%02X", sentence, sum);
+    }
+
+    @Test
+    public void readsCsvColumnsInTheDefaultOrder() throws Exception {
+        List<Location> locs = parse("1000,48.5,2.25,35,4,1.5,90\n2000,48.6,2.35\n");
+        assertEquals(2, locs.size());
+
+        Location first = locs.get(0);
+        assertEquals(1000, first.getTime());
+        assertEquals(48.5, first.getLatitude(), DELTA);
+        assertEquals(2.25, first.getLongitude(), DELTA);
+        assertEquals(35, first.getAltitude(), DELTA);
+        assertEquals(4, first.getAccuracy(), DELTA);
+        assertEquals(1.5, first.getSpeed(), DELTA);
+        assertEquals(90, first.getBearing(), DELTA);
+
+        Location second = locs.get(1);
+        assertFalse(second.hasAltitude());
+        assertEquals(5, second.getAccuracy(), DELTA);
+    }
+
+    @Test
+    public void readsCsvColumnsNamedByTheHeader() throws Exception {
+        List<Location> locs = parse("# comment\nlon;lat;accuracy\n2.25;48.5;3\n2.35;48.6;4\n");
+        assertEquals(2, locs.size());
+        assertEquals(48.5, locs.get(0).getLatitude(), DELTA);
+        assertEquals(2.25, locs.get(0).getLongitude(), DELTA);
+        assertEquals(3, locs.get(0).getAccuracy(), DELTA);
+        // One second apart without a time column
+        assertEquals(0, locs.get(0).getTime());
+        assertEquals(1000, locs.get(1).getTime());
+    }
+
+    @Test
+    public void readsIsoTimes() throws Exception {
+        List<Location> locs = parse("time,lat,lon\n"
+                + "2020-01-01T00:00:00Z,1,1\n"
+                + "2020-01-01T00:00:01.5Z,1,1\n"
+                + "2020-01-01T02:00:02+02:00,1,1\n"
+                + "2020-01-01 00:00:03,1,1\n");
+        assertEquals(4, locs.size());
+        assertEquals(NEW_YEAR, locs.get(0).getTime());
+        assertEquals(NEW_YEAR + 1500, locs.get(1).getTime());
+        assertEquals(NEW_YEAR + 2000, locs.get(2).getTime());
+        assertEquals(NEW_YEAR + 3000, locs.get(3).getTime());
+    }
+
+    @Test
+    public void skipsMalformedCsvLines() throws Exception {
+        List<Location> locs = parse("time,lat,lon\n"
+                + "1000,1,1\n"
+                + "2000,north,1\n"
+                + "3000\n"
+                + "2020-01-01T00:0a:00Z,1,1\n"
+                + "4000,2,2\n");
+        assertEquals(2, locs.size());
+        assertEquals(1000, locs.get(0).getTime());
+        assertEquals(4000, locs.get(1).getTime());
+    }
+
+    @Test
+    public void readsNmeaRmcWithTheAltitudeOfGga() throws Exception {
+        List<Location> locs = parse(
+                nmea("$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,") + "\n"
+                        + nmea("$GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W")
+                        + "\n");
+        assertEquals(1, locs.size());
+
+        Location loc = locs.get(0);
+        assertEquals(48.1173, loc.getLatitude(), DELTA);
+        assertEquals(11.516667, loc.getLongitude(), DELTA);
+        assertEquals(545.4, loc.getAltitude(), DELTA);
+        assertEquals(4.5, loc.getAccuracy(), DELTA);
+        assertEquals(22.4 * 0.514444, loc.getSpeed(), 1e-4);
+        assertEquals(84.4, loc.getBearing(), 1e-4);
+        // 1994-03-23T12:35:19Z
+        assertEquals(764426119000L, loc.getTime());
+    }
+
+    @Test
+    public void readsNmeaGgaAcrossMidnight() throws Exception {
+        List<Location> locs = parse(
+                nmea("$GPGGA,235959,4807.038,S,01131.000,W,1,08,0.9,545.4,M,46.9,M,,") + "\n"
+                        + nmea("$GPGGA,000001,4807.038,S,01131.000,W,1,08,0.9,545.4,M,46.9,M,,")
+                        + "\n");
+        assertEquals(2, locs.size());
+        assertEquals(-48.1173, locs.get(0).getLatitude(), DELTA);
+        assertEquals(-11.516667, locs.get(0).getLongitude(), DELTA);
+        assertEquals(2000, locs.get(1).getTime() - locs.get(0).getTime());
+    }
+
+    @Test
+    public void skipsInvalidNmeaSentences() throws Exception {
+        String valid = nmea("$GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W");
+        List<Location> locs = parse(valid + "\n"
+                // Bad checksum
+                + "$GPRMC,123520,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*00\n"
+                // No fix
+                + nmea("$GPRMC,123521,V,,,,,,,230394,,") + "\n"
+                // Malformed numbers
+                + nmea("$GPRMC,12a522,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W") + "\n"
+                + nmea("$GPRMC,123523,A,4807.038,N,01131.000,E,022.4,084.4,23x394,003.1,W") + "\n"
+                + nmea("$GPRMC,123524,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W") + "\n");
+        assertEquals(2, locs.size());
+        assertEquals(5000, locs.get(1).getTime() - locs.get(0).getTime());
+    }
+
+    @Test
+    public void readsGpxPoints() throws Exception {
+        List<Location> locs = parse("<?xml version=\"1.0\"?><gpx><trk><trkseg>"
+                + "<trkpt lat=\"48.5\" lon=\"2.25\"><ele>35</ele><time>2020-01-01T00:00:00Z</time>"
+                + "<hdop>2</hdop></trkpt>"
+                + "<trkpt lat='48.6' lon='2.35'></trkpt>"
+                + "<trkpt lat=\"north\" lon=\"2.35\"></trkpt>"
+                + "<trkpt lon=\"2.35\"></trkpt>"
+                + "</trkseg></trk></gpx>");
+        assertEquals(2, locs.size());
+
+        Location first = locs.get(0);
+        assertEquals(48.5, first.getLatitude(), DELTA);
+        assertEquals(35, first.getAltitude(), DELTA);
+        assertEquals(10, first.getAccuracy(), DELTA);
+        assertEquals(NEW_YEAR, first.getTime());
+
+        Location second = locs.get(1);
+        assertEquals(2.35, second.getLongitude(), DELTA);
+        assertTrue(second.getTime() > first.getTime());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TrackSimplifierTest {
+
+    // Degrees of latitude in a meter
+    private static final double METER = 1 / 111195.0;
+
+    private static LocationPayload fix(double north, double east) {
+        Location loc = new Location("test");
+        loc.setLatitude(north * METER);
+        loc.setLongitude(east * METER);
+        return new LocationPayload(loc, null);
+    }
+
+    @Test
+    public void firstFixIsEmitted() {
+        TrackSimplifier simplifier = new TrackSimplifier(5, 64);
+        LocationPayload first = fix(0, 0);
+        assertSame(first, simplifier.offer(first));
+    }
+
+    @Test
+    public void straightLineIsDropped() {
+        TrackSimplifier simplifier = new TrackSimplifier(5, 64);
+        simplifier.offer(fix(0, 0));
+        for (int i = 1; i <= 20; i++) {
+            // Within a meter of the line going north
+            assertNull(simplifier.offer(fix(i * 10, i % 2)));
+        }
+    }
+
+    @Test
+    public void turnIsEmittedOneFixLate() {
+        TrackSimplifier simplifier = new TrackSimplifier(5, 64);
+        List<LocationPayload> emitted = new ArrayList<LocationPayload>();
+        LocationPayload corner = fix(100, 0);
+        LocationPayload[] track = {
+                fix(0, 0), fix(50, 0), corner, fix(100, 50), fix(100, 100)};
+        for (LocationPayload payload : track) {
+            LocationPayload out = simplifier.offer(payload);
+            if (out != null) {
+                emitted.add(out);
+            }
+        }
+        assertEquals(2, emitted.size());
+        assertSame(track[0], emitted.get(0));
+        assertSame(corner, emitted.get(1));
+    }
+
+    @Test
+    public void fullWindowEmitsTheNewestFix() {
+        TrackSimplifier simplifier = new TrackSimplifier(5, 4);
+        simplifier.offer(fix(0, 0));
+        for (int i = 1; i <= 4; i++) {
+            assertNull(simplifier.offer(fix(i * 10, 0)));
+        }
+        LocationPayload fifth = fix(50, 0);
+        assertSame(fifth, simplifier.offer(fifth));
+    }
+}
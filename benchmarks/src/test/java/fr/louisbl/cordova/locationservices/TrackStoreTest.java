@@ -0,0 +1,131 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrackStoreTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = File.createTempFile("track", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    private static Location fix(long time) {
+        Location loc = new Location("gps");
+        loc.setTime(time);
+        loc.setLatitude(48.8566);
+        loc.setLongitude(2.3522 + time * 1e-6);
+        loc.setAccuracy(5);
+        return loc;
+    }
+
+    private static JSONArray positions(TrackStore store, long from, long to) throws Exception {
+        return store.query(from, to, -1, 100).getJSONArray("positions");
+    }
+
+    @Test
+    public void queriesATimeWindow() throws Exception {
+        TrackStore store = new TrackStore(mFile, 10);
+        for (int i = 1; i <= 5; i++) {
+            store.append(fix(i * 1000));
+        }
+
+        JSONArray positions = positions(store, 2000, 4000);
+        assertEquals(3, positions.length());
+        assertEquals(2000, positions.getJSONObject(0).getLong("timestamp"));
+        assertEquals(4000, positions.getJSONObject(2).getLong("timestamp"));
+        store.close();
+    }
+
+    @Test
+    public void pagesWithACursor() throws Exception {
+        TrackStore store = new TrackStore(mFile, 10);
+        for (int i = 1; i <= 5; i++) {
+            store.append(fix(i * 1000));
+        }
+
+        JSONObject page = store.query(0, Long.MAX_VALUE, -1, 2);
+        assertEquals(2, page.getJSONArray("positions").length());
+        page = store.query(0, Long.MAX_VALUE, page.getLong("next"), 10);
+        assertEquals(3, page.getJSONArray("positions").length());
+        assertTrue(page.isNull("next"));
+        store.close();
+    }
+
+    @Test
+    public void overwritesTheOldestRecordsOnceFull() throws Exception {
+        TrackStore store = new TrackStore(mFile, 3);
+        for (int i = 1; i <= 5; i++) {
+            store.append(fix(i * 1000));
+        }
+
+        JSONArray positions = positions(store, 0, Long.MAX_VALUE);
+        assertEquals(3, positions.length());
+        assertEquals(3000, positions.getJSONObject(0).getLong("timestamp"));
+        store.close();
+    }
+
+    @Test
+    public void keepsTheRecordsOfAPreviousSession() throws Exception {
+        TrackStore store = new TrackStore(mFile, 10);
+        store.append(fix(1000));
+        store.append(fix(2000));
+        store.close();
+
+        store = new TrackStore(mFile, 10);
+        assertEquals(2, positions(store, 0, Long.MAX_VALUE).length());
+        // Older than the last record
+        store.append(fix(1500));
+        assertEquals(2, positions(store, 0, Long.MAX_VALUE).length());
+        store.close();
+
+        store = new TrackStore(mFile, 20);
+        assertEquals(0, positions(store, 0, Long.MAX_VALUE).length());
+        store.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsACapacityTooLargeToMap() throws Exception {
+        new TrackStore(mFile, TrackStore.MAX_CAPACITY + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnEmptyCapacity() throws Exception {
+        new TrackStore(mFile, 0);
+    }
+}
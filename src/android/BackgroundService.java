@@ -0,0 +1,110 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+/**
+ * A foreground service keeping the app tracking while it is paused. It does
+ * not receive the fixes itself, it only keeps the process and the location
+ * updates alive and tells the user about it.
+ */
+public class BackgroundService extends Service {
+
+    private static final String EXTRA_TITLE = "title";
+    private static final String EXTRA_TEXT = "text";
+    private static final String CHANNEL_ID = "locationservices";
+    private static final int NOTIFICATION_ID = 0x10c;
+
+    /**
+     * @return false if Android does not let the app start the service, as
+     * from the background since Android 12
+     */
+    public static boolean start(Context context, String title, String text) {
+        Intent intent = new Intent(context, BackgroundService.class);
+        intent.putExtra(EXTRA_TITLE, title);
+        intent.putExtra(EXTRA_TEXT, text);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                context.startForegroundService(intent);
+            } else {
+                context.startService(intent);
+            }
+            return true;
+        } catch (IllegalStateException e) {
+            // ForegroundServiceStartNotAllowedException on Android 12
+            Log.w(LocationUtils.APPTAG, "Unable to start the background service", e);
+        } catch (SecurityException e) {
+            Log.w(LocationUtils.APPTAG, "Unable to start the background service", e);
+        }
+        return false;
+    }
+
+    public static void stop(Context context) {
+        context.stopService(new Intent(context, BackgroundService.class));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String title = intent != null ? intent.getStringExtra(EXTRA_TITLE) : null;
+        String text = intent != null ? intent.getStringExtra(EXTRA_TEXT) : null;
+        startForeground(NOTIFICATION_ID, buildNotification(title, text));
+
+        // The plugin starts the service again if the app is still paused
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        stopForeground(true);
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private Notification buildNotification(String title, String text) {
+        Notification.Builder builder;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager manager = (NotificationManager) getSystemService(
+                    Context.NOTIFICATION_SERVICE);
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                    title, NotificationManager.IMPORTANCE_LOW));
+            builder = new Notification.Builder(this, CHANNEL_ID);
+        } else {
+            builder = new Notification.Builder(this);
+        }
+
+        return builder.setContentTitle(title)
+                .setContentText(text)
+                .setSmallIcon(getApplicationInfo().icon)
+                .setOngoing(true)
+                .build();
+    }
+}
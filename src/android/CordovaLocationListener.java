@@ -19,52 +19,105 @@
 package fr.louisbl.cordova.locationservices;
 
 import android.location.Location;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.location.LocationListener;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationServices;
-
-import org.apache.cordova.CallbackContext;
+import com.google.android.gms.tasks.CancellationTokenSource;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-
-public class CordovaLocationListener implements LocationListener {
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatches the fixes of the location source to the watches, one-shot
+ * requests and geofences.
+ * <p/>
+ * Location updates, timeouts and subscription changes all run on a
+ * dedicated looper thread. Subscribers can be added and removed from any
+ * thread: the registry is safe to iterate while it is modified, and the
+ * state of each watch is only touched on the looper thread.
+ */
+public class CordovaLocationListener implements LocationSource.Listener {
     public static int POSITION_UNAVAILABLE = 2;
     public static int TIMEOUT = 3;
 
-    public HashMap<String, CallbackContext> watches = new HashMap<String, CallbackContext>();
+    private static final String TIMEOUT_MESSAGE = "Position retrieval timed out.";
+
+    public final Map<String, LocationWatch> watches = new ConcurrentHashMap<String, LocationWatch>();
 
-    protected boolean mIsRunning = false;
+    protected volatile boolean mIsRunning = false;
 
-    private GoogleApiClient mGApiClient;
-    private LocationRequest mLocationRequest;
+    private final LocationSource mSource;
+    private LocationRequestArbiter mArbiter = new LocationRequestArbiter();
     private CordovaLocationServices mOwner;
-    private List<CallbackContext> mCallbacks = new ArrayList<CallbackContext>();
-    private Timer mTimer = null;
+    private final List<OneShotRequest> mRequests = new CopyOnWriteArrayList<OneShotRequest>();
+    private final GeofenceMonitor mGeofences;
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private long mNextStalenessCheck = Long.MAX_VALUE;
+    // The WebView is paused, the fixes of the watches are buffered
+    private boolean mPaused = false;
+    // The single fix request in flight for the one-shot requests, if any
+    private CancellationTokenSource mSingleFix;
+    private int mSingleFixPriority;
+    // The one-shot requests wait for a fix from the subscription, because
+    // the source has no single fix or could not get one
+    private boolean mSubscribeForRequests = false;
     private String TAG;
 
-    public CordovaLocationListener(GoogleApiClient client,
+    private final Runnable mUpdateRequest = new Runnable() {
+        @Override
+        public void run() {
+            updateRequest();
+        }
+    };
+
+    /**
+     * Sends TIMEOUT errors to the watches that did not receive a fix in time.
+     * Watches only move their deadline on each fix, this single task is
+     * rescheduled to the earliest deadline when it runs.
+     */
+    private final Runnable mStalenessCheck = new Runnable() {
+        @Override
+        public void run() {
+            mNextStalenessCheck = Long.MAX_VALUE;
+            long now = SystemClock.uptimeMillis();
+            long next = Long.MAX_VALUE;
+
+            for (LocationWatch watch : watches.values()) {
+                if (watch.getDeadline() <= now) {
+                    // Nothing could handle the error while paused
+                    if (!mPaused) {
+                        mOwner.getStats().timeouts.incrementAndGet();
+                        mOwner.fail(TIMEOUT, TIMEOUT_MESSAGE,
+                                watch.getCallbackContext(), true);
+                    }
+                    watch.touch(now);
+                }
+                next = Math.min(next, watch.getDeadline());
+            }
+
+            scheduleStalenessCheck(next);
+        }
+    };
+
+    public CordovaLocationListener(LocationSource source,
                                    CordovaLocationServices broker, String tag) {
-        // Create a new global location parameters object
-        mLocationRequest = LocationRequest.create();
-        // Set the average interval to 6 seconds
-        mLocationRequest
-                .setInterval(LocationUtils.UPDATE_INTERVAL_IN_MILLISECONDS);
-        // Use high accuracy
-        mLocationRequest.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
-        // Set the interval ceiling to 1 second
-        mLocationRequest
-                .setFastestInterval(LocationUtils.FAST_INTERVAL_CEILING_IN_MILLISECONDS);
-
-        mGApiClient = client;
+        mSource = source;
         mOwner = broker;
         TAG = tag;
+        mGeofences = new GeofenceMonitor(broker);
+
+        mThread = new HandlerThread(tag);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
     }
 
     /**
@@ -78,145 +131,669 @@ public class CordovaLocationListener implements LocationListener {
         win(location);
     }
 
-    public void setLocationRequestParams(int priority, long interval,
-                                         long fastInterval) {
-        mLocationRequest.setPriority(priority);
-        mLocationRequest.setInterval(interval);
-        mLocationRequest.setFastestInterval(fastInterval);
+    /**
+     * Called with the fixes batched by the source.
+     *
+     * @param locations
+     */
+    @Override
+    public void onLocationsChanged(List<Location> locations) {
+        Log.d(TAG, "The location has been updated! (" + locations.size() + " fixes)");
+        win(locations);
+    }
 
+    /**
+     * @return The looper the fixes, timeouts and subscription changes run on
+     */
+    public Looper getLooper() {
+        return mThread.getLooper();
     }
 
     public int size() {
-        return watches.size() + mCallbacks.size();
+        return watches.size() + mRequests.size() + mGeofences.size();
     }
 
-    public void addWatch(String timerId, CallbackContext callbackContext) {
-        watches.put(timerId, callbackContext);
+    /**
+     * @return true if a subscription is needed: for the watches, the
+     * geofences, or the one-shot requests without a single fix
+     */
+    private boolean needsUpdates() {
+        return !watches.isEmpty() || mGeofences.size() > 0
+                || (mSubscribeForRequests && !mRequests.isEmpty());
+    }
 
-        if (size() == 1) {
-            start();
-        }
+    /**
+     * @return How many location encodings were avoided by sharing one payload
+     * between all the subscribers of a fix
+     */
+    public long getSavedEncodings() {
+        return mOwner.getStats().savedEncodings.get();
     }
 
-    public void addCallback(CallbackContext callbackContext, int timeout) {
-        if (mTimer == null) {
-            mTimer = new Timer();
+    public void addWatch(final LocationWatch watch) {
+        watches.put(watch.getId(), watch);
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                watch.touch(SystemClock.uptimeMillis());
+                scheduleStalenessCheck(watch.getDeadline());
+
+                updateRequest();
+            }
+        });
+    }
+
+    /**
+     * Add a one-shot request, answered by the next fix accurate enough for
+     * it. Concurrent requests share the same single fix request, or the same
+     * subscription, and are answered from the same fix. A request with a
+     * desired accuracy keeps the best fix until its deadline.
+     */
+    public void addRequest(final OneShotRequest request) {
+        mRequests.add(request);
+
+        long uptime = SystemClock.uptimeMillis();
+        long timeout = request.getRemainingTimeout(uptime);
+        if (timeout != Long.MAX_VALUE) {
+            // The request is the token used to cancel the task
+            mHandler.postAtTime(new LocationTimeoutTask(request),
+                    request, uptime + timeout);
+        }
+        long deadline = request.getRemainingDeadline(uptime);
+        if (deadline < timeout) {
+            mHandler.postAtTime(new LocationDeadlineTask(request),
+                    request, uptime + deadline);
         }
 
-        mTimer.schedule(new LocationTimeoutTask(callbackContext, this), timeout);
-        mCallbacks.add(callbackContext);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                requestSingleFix(request);
+            }
+        });
+    }
 
-        if (size() == 1) {
-            start();
+    /**
+     * Time out a request waiting for the connection, its timeout counting
+     * from the call to getLocation.
+     *
+     * @param queue The queue of the request, it is timed out only if it is
+     *              still in it
+     */
+    public void addPendingTimeout(final OneShotRequest request,
+                                  final Collection<OneShotRequest> queue) {
+        long uptime = SystemClock.uptimeMillis();
+        long timeout = request.getRemainingTimeout(uptime);
+        if (timeout == Long.MAX_VALUE) {
+            return;
         }
+        mHandler.postAtTime(new Runnable() {
+            @Override
+            public void run() {
+                boolean queued;
+                synchronized (queue) {
+                    queued = queue.remove(request);
+                }
+                if (queued) {
+                    mOwner.getStats().timeouts.incrementAndGet();
+                    mOwner.fail(TIMEOUT, TIMEOUT_MESSAGE, request.getCallbackContext(), false);
+                }
+            }
+        }, request, uptime + timeout);
+    }
+
+    /**
+     * Start monitoring zones, the zones with the same ids are replaced.
+     */
+    public void addGeofences(final List<Geofence> fences) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Geofence fence : fences) {
+                    mGeofences.add(fence);
+                }
+                updateRequest();
+            }
+        });
+    }
+
+    /**
+     * Stop monitoring zones.
+     *
+     * @param ids The ids of the zones, or null to remove them all
+     */
+    public void removeGeofences(final List<String> ids) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (ids == null) {
+                    mGeofences.clear();
+                } else {
+                    for (String id : ids) {
+                        mGeofences.remove(id);
+                    }
+                }
+                updateRequest();
+            }
+        });
     }
 
     public void clearWatch(String timerId) {
-        if (watches.containsKey(timerId)) {
-            watches.remove(timerId);
-        }
-        if (size() == 0) {
-            stop();
+        LocationWatch watch = watches.remove(timerId);
+        if (watch != null) {
+            // The watch is the token of its batch flush
+            mHandler.removeCallbacksAndMessages(watch);
         }
+
+        mHandler.post(mUpdateRequest);
     }
 
+    /**
+     * Stop receiving location updates. The listener can be used again.
+     */
     public void destroy() {
-        stop();
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                cancelSingleFix();
+                stop();
+            }
+        });
     }
 
-    protected void fail(int code, String message) {
-        cancelTimer();
+    /**
+     * Buffer the fixes of the watches instead of sending them to the paused
+     * WebView.
+     */
+    public void pause() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mPaused = true;
+            }
+        });
+    }
 
-        for (CallbackContext callbackContext : mCallbacks) {
-            mOwner.fail(code, message, callbackContext, false);
-        }
+    /**
+     * Send the fixes buffered while paused, one batch per watch, within the
+     * delivery policy of each watch. The batches of the blocked watches are
+     * sent once acknowledged.
+     */
+    public void resume() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mPaused = false;
+                long uptime = SystemClock.uptimeMillis();
+                for (LocationWatch watch : watches.values()) {
+                    if (watch.hasBatch()) {
+                        mOwner.getStats().coalesced.addAndGet(watch.coalesceBatch());
+                        flushBatch(watch, uptime);
+                    }
+                }
+            }
+        });
+    }
 
-        if (watches.size() == 0) {
-            stop();
-        }
+    /**
+     * Called when JavaScript processed a result of a watch, sends the next
+     * fix held for it.
+     *
+     * @param id The id of the watch
+     */
+    public void acknowledge(final String id) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                LocationWatch watch = watches.get(id);
+                if (watch == null) {
+                    return;
+                }
 
-        mCallbacks.clear();
+                long uptime = SystemClock.uptimeMillis();
+                long roundTrip = watch.acknowledged(uptime);
+                if (roundTrip >= 0) {
+                    LocationStats stats = mOwner.getStats();
+                    stats.acks.incrementAndGet();
+                    stats.ack.record(roundTrip);
+                }
 
-        for (CallbackContext callbackContext : watches.values()) {
-            mOwner.fail(code, message, callbackContext, true);
+                if (mPaused) {
+                    return;
+                }
+                // The batch held for the watch, or buffered while paused
+                if (watch.hasBatch() && (!watch.isBatched()
+                        || watch.isBatchFull(System.currentTimeMillis()))) {
+                    flushBatch(watch, uptime);
+                } else if (!watch.isBlocked(uptime)) {
+                    LocationPayload next = watch.nextPending();
+                    if (next != null) {
+                        send(watch, next, uptime);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return true if a watch asked to keep tracking in the background
+     */
+    public boolean hasBackgroundWatches() {
+        for (LocationWatch watch : watches.values()) {
+            if (watch.isBackground()) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Send an error to the watches that keep tracking in the background,
+     * when they cannot.
+     */
+    public void failBackgroundWatches(final int code, final String message) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (LocationWatch watch : watches.values()) {
+                    if (watch.isBackground()) {
+                        mOwner.fail(code, message, watch.getCallbackContext(), true);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop receiving location updates and the looper thread. The listener
+     * cannot be used anymore.
+     */
+    public void quit() {
+        destroy();
+        mThread.quitSafely();
     }
 
     protected void win(Location loc) {
-        cancelTimer();
+        win(Collections.singletonList(loc));
+    }
 
-        for (CallbackContext callbackContext : mCallbacks) {
-            mOwner.win(loc, callbackContext, false);
+    /**
+     * Deliver new fixes, oldest first. One-shot callbacks get the most recent
+     * one, watches get every fix they are due, alone or in a batch.
+     *
+     * @param locs The new locations
+     */
+    protected void win(List<Location> locs) {
+        if (locs.isEmpty()) {
+            return;
         }
 
-        if (watches.size() == 0) {
-            stop();
+        LocationStats stats = mOwner.getStats();
+        stats.fixes.addAndGet(locs.size());
+
+        List<LocationPayload> payloads = new ArrayList<LocationPayload>(locs.size());
+        for (Location loc : locs) {
+            mOwner.onLocation(loc);
+            payloads.add(new LocationPayload(loc, mOwner));
+        }
+        LocationPayload last = payloads.get(payloads.size() - 1);
+
+        if (answerRequests(last)) {
+            updateRequest();
         }
 
-        mCallbacks.clear();
+        long now = System.currentTimeMillis();
+        long uptime = SystemClock.uptimeMillis();
+        boolean tierChanged = false;
+
+        for (LocationWatch watch : watches.values()) {
+            // A fix filtered out for this watch still proves it is not stale
+            watch.touch(uptime);
+
+            for (LocationPayload payload : payloads) {
+                Location loc = payload.getLocation();
+
+                if (watch.observe(loc)) {
+                    tierChanged = true;
+                    if (!mPaused) {
+                        mOwner.winTier(watch, loc);
+                    }
+                }
+
+                if (watch.isSmoothed()) {
+                    loc = watch.smooth(loc);
+                    if (loc == null) {
+                        continue;
+                    }
+                }
 
-        for (CallbackContext callbackContext : watches.values()) {
-            mOwner.win(loc, callbackContext, true);
+                if (!watch.isDue(loc)) {
+                    continue;
+                }
+                if (loc != payload.getLocation()) {
+                    // The smoothed fix belongs to this watch only, and the
+                    // filter reuses it for the next fix
+                    loc = new Location(loc);
+                    payload = new LocationPayload(loc, mOwner);
+                }
+                if (!watch.hasDelivered()) {
+                    stats.firstFix.record(SystemClock.elapsedRealtime() - watch.getAddedAt());
+                }
+                watch.delivered(loc);
+
+                LocationPayload out = watch.simplify(payload);
+                if (out == null) {
+                    continue;
+                }
+
+                if (mPaused || watch.isBatched()) {
+                    if (mPaused) {
+                        stats.buffered.incrementAndGet();
+                    }
+                    if (watch.addToBatch(out)) {
+                        stats.dropped.incrementAndGet();
+                    }
+                } else {
+                    deliver(watch, out, uptime);
+                }
+            }
+
+            if (!mPaused && watch.isBatchFull(now)) {
+                flushBatch(watch, uptime);
+            }
+            scheduleBatchFlush(watch, now, uptime);
+        }
+
+        if (tierChanged) {
+            updateRequest();
+        }
+
+        if (mGeofences.size() > 0) {
+            for (LocationPayload payload : payloads) {
+                mGeofences.evaluate(payload);
+            }
         }
     }
 
+    /**
+     * Start receiving location updates if some subscribers are waiting.
+     * Called when the location source is connected.
+     */
     protected void start() {
-        if (mGApiClient != null && mGApiClient.isConnected()) {
+        mHandler.post(mUpdateRequest);
+    }
+
+    private void startUpdates() {
+        if (mSource.isConnected()) {
             if (!mIsRunning) {
                 mIsRunning = true;
-                LocationServices.FusedLocationApi.requestLocationUpdates(
-                        mGApiClient, mLocationRequest, this);
+                mOwner.getStats().subscriptions.incrementAndGet();
+                mSource.requestLocationUpdates(mArbiter.getRequest(), this,
+                        mThread.getLooper());
             }
         }
     }
 
+    /**
+     * Merge the parameters of every subscriber and subscribe again if the
+     * merged request changed.
+     */
+    private void updateRequest() {
+        if (!needsUpdates()) {
+            stop();
+            return;
+        }
+
+        boolean changed = mArbiter.update(watches.values(),
+                mSubscribeForRequests && !mRequests.isEmpty());
+
+        if (!mIsRunning) {
+            startUpdates();
+        } else if (changed && mSource.isConnected()) {
+            Log.d(TAG, "Location request changed, subscribing again");
+            mOwner.getStats().subscriptions.incrementAndGet();
+            // Replaces the request previously registered for this listener
+            mSource.requestLocationUpdates(mArbiter.getRequest(), this,
+                    mThread.getLooper());
+        }
+    }
+
     /**
      * Stop receiving location updates.
      */
     private void stop() {
-        cancelTimer();
+        mHandler.removeCallbacks(mStalenessCheck);
+        mNextStalenessCheck = Long.MAX_VALUE;
 
         if (mIsRunning) {
-            if (mGApiClient != null && mGApiClient.isConnected()) {
-                LocationServices.FusedLocationApi.removeLocationUpdates(
-                        mGApiClient, this);
-            }
+            mSource.removeLocationUpdates(this);
             mIsRunning = false;
         }
     }
 
-    private void cancelTimer() {
-        if (mTimer != null) {
-            mTimer.cancel();
-            mTimer.purge();
-            mTimer = null;
+    /**
+     * Answer the one-shot requests with a fix.
+     *
+     * @return true if a request was answered
+     */
+    private boolean answerRequests(LocationPayload payload) {
+        boolean answered = false;
+        long uptime = SystemClock.uptimeMillis();
+        for (OneShotRequest request : mRequests) {
+            // Requests asking for a better accuracy wait for a better fix
+            if (!request.accepts(payload.getLocation())) {
+                continue;
+            }
+            if (request.isRefining(payload.getLocation(), uptime)) {
+                if (request.offer(payload) && request.wantsProgress()) {
+                    mOwner.winProgress(payload, request.getCallbackContext());
+                }
+                continue;
+            }
+            answered |= answer(request, payload);
+        }
+        if (answered) {
+            onRequestsAnswered();
         }
+        return answered;
     }
 
-    private class LocationTimeoutTask extends TimerTask {
+    /**
+     * @return false if the request was already answered
+     */
+    private boolean answer(OneShotRequest request, LocationPayload payload) {
+        // Removing it first makes sure it is answered only once
+        if (!mRequests.remove(request)) {
+            return false;
+        }
+        mHandler.removeCallbacksAndMessages(request);
+        mOwner.win(payload, request.getCallbackContext(), false);
+        return true;
+    }
 
-        private CallbackContext mCallbackContext = null;
-        private CordovaLocationListener mListener = null;
+    /**
+     * Stop the single fix request once no one-shot request waits for it.
+     */
+    private void onRequestsAnswered() {
+        if (mRequests.isEmpty()) {
+            cancelSingleFix();
+            mSubscribeForRequests = false;
+        }
+    }
 
-        public LocationTimeoutTask(CallbackContext callbackContext,
-                                   CordovaLocationListener listener) {
-            mCallbackContext = callbackContext;
-            mListener = listener;
+    /**
+     * Ask the source for a single fix, unless a request at least as
+     * accurate is already in flight. Falls back to the subscription if the
+     * source cannot.
+     *
+     * @param request The new one-shot request
+     */
+    private void requestSingleFix(OneShotRequest request) {
+        if (mRequests.isEmpty()) {
+            return;
+        }
+        int priority = request.getPriority();
+        // A single fix in flight at least as accurate, a lower value, serves it too
+        if (mSubscribeForRequests || (mSingleFix != null && mSingleFixPriority <= priority)) {
+            updateRequest();
+            return;
+        }
+
+        cancelSingleFix();
+        final CancellationTokenSource cancellation = new CancellationTokenSource();
+        boolean supported = mSource.getCurrentLocation(priority,
+                request.getMaximumAccuracy(), cancellation.getToken(),
+                new LocationSource.SingleFixCallback() {
+                    @Override
+                    public void onSingleFix(Location location) {
+                        if (cancellation == mSingleFix) {
+                            mSingleFix = null;
+                            onSingleFixResult(location);
+                        }
+                    }
+                }, mThread.getLooper());
+
+        if (supported) {
+            mSingleFix = cancellation;
+            mSingleFixPriority = priority;
+            mOwner.getStats().singleFixes.incrementAndGet();
+        } else {
+            mSubscribeForRequests = true;
+            updateRequest();
+        }
+    }
+
+    private void onSingleFixResult(Location location) {
+        if (location != null) {
+            mOwner.getStats().fixes.incrementAndGet();
+            mOwner.onLocation(location);
+            answerRequests(new LocationPayload(location, mOwner));
+        }
+
+        if (!mRequests.isEmpty()) {
+            // No fix, or not accurate enough: wait for the subscription
+            Log.d(TAG, "Single fix unavailable, subscribing for the one-shot requests");
+            mSubscribeForRequests = true;
+        }
+        updateRequest();
+    }
+
+    private void cancelSingleFix() {
+        if (mSingleFix != null) {
+            mSingleFix.cancel();
+            mSingleFix = null;
+        }
+    }
+
+    /**
+     * Send a fix to a watch, or hold it while JavaScript has not
+     * acknowledged the previous results.
+     */
+    private void deliver(LocationWatch watch, LocationPayload payload, long uptime) {
+        if (watch.isBlocked(uptime)) {
+            mOwner.getStats().coalesced.addAndGet(watch.hold(payload));
+            return;
+        }
+        if (watch.hasPending()) {
+            // The fixes held first go first
+            mOwner.getStats().coalesced.addAndGet(watch.hold(payload));
+            payload = watch.nextPending();
+        }
+        send(watch, payload, uptime);
+    }
+
+    /**
+     * Send the batch of a watch, or keep adding to it while JavaScript has
+     * not acknowledged the previous results.
+     */
+    private void flushBatch(LocationWatch watch, long uptime) {
+        if (watch.isBlocked(uptime)) {
+            return;
+        }
+        watch.inFlight(uptime);
+        mOwner.win(watch.drainBatch(), watch);
+    }
+
+    /**
+     * Flush the batch of a watch once it is old enough, even if no other
+     * fix comes to fill it.
+     */
+    private void scheduleBatchFlush(final LocationWatch watch, long now, long uptime) {
+        mHandler.removeCallbacksAndMessages(watch);
+        long deadline = watch.getBatchDeadline();
+        if (deadline == Long.MAX_VALUE) {
+            return;
+        }
+        mHandler.postAtTime(new Runnable() {
+            @Override
+            public void run() {
+                if (!mPaused && watches.get(watch.getId()) == watch
+                        && watch.isBatchFull(System.currentTimeMillis())) {
+                    flushBatch(watch, SystemClock.uptimeMillis());
+                }
+            }
+        }, watch, uptime + Math.max(0, deadline - now));
+    }
+
+    private void send(LocationWatch watch, LocationPayload payload, long uptime) {
+        watch.inFlight(uptime);
+        mOwner.win(payload, watch);
+    }
+
+    private void scheduleStalenessCheck(long deadline) {
+        if (deadline >= mNextStalenessCheck) {
+            return;
+        }
+        mHandler.removeCallbacks(mStalenessCheck);
+        mHandler.postAtTime(mStalenessCheck, deadline);
+        mNextStalenessCheck = deadline;
+    }
+
+    private class LocationTimeoutTask implements Runnable {
+
+        private OneShotRequest mRequest = null;
+
+        public LocationTimeoutTask(OneShotRequest request) {
+            mRequest = request;
         }
 
         @Override
         public void run() {
-            // mListener.fail(TIMEOUT, "Unable to retrieve position");
-
-            for (CallbackContext callbackContext : mListener.mCallbacks) {
-                if (mCallbackContext == callbackContext) {
-                    mListener.mCallbacks.remove(callbackContext);
-                    break;
+            // A refining request times out with the best fix it received
+            LocationPayload best = mRequest.getBest();
+            if (best != null) {
+                if (answer(mRequest, best)) {
+                    onRequestsAnswered();
+                    updateRequest();
                 }
+            } else if (mRequests.remove(mRequest)) {
+                mOwner.getStats().timeouts.incrementAndGet();
+                mOwner.fail(TIMEOUT, TIMEOUT_MESSAGE, mRequest.getCallbackContext(), false);
+                onRequestsAnswered();
+                updateRequest();
             }
+        }
+    }
 
-            if (mListener.size() == 0) {
-                mListener.stop();
+    /**
+     * Answers a refining request with the best fix it received once its
+     * deadline passes. Without one, the next fix accurate enough answers it.
+     */
+    private class LocationDeadlineTask implements Runnable {
+
+        private final OneShotRequest mRequest;
+
+        public LocationDeadlineTask(OneShotRequest request) {
+            mRequest = request;
+        }
+
+        @Override
+        public void run() {
+            LocationPayload best = mRequest.getBest();
+            if (best != null && answer(mRequest, best)) {
+                onRequestsAnswered();
+                updateRequest();
             }
         }
     }
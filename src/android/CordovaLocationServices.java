@@ -25,8 +25,10 @@ import android.location.Location;
 import android.location.LocationManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationServices;
@@ -40,26 +42,129 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 public class CordovaLocationServices extends CordovaPlugin implements
-        GoogleApiClient.ConnectionCallbacks {
+        GoogleApiClient.ConnectionCallbacks,
+        GoogleApiClient.OnConnectionFailedListener {
 
     private static final int LOCATION_PERMISSION_REQUEST = 0;
+    private static final int NOTIFICATION_PERMISSION_REQUEST = 1;
 
     private CordovaLocationListener mListener;
-    private boolean mWantLastLocation = false;
+    private final LocationCache mCache = new LocationCache(LocationUtils.CACHE_SIZE);
+    // Null when the history is disabled
+    private LocationHistory mHistory;
+    private final LocationStats mStats = new LocationStats();
+    private volatile TrackStore mTrackStore;
     private boolean mWantUpdates = false;
     private String[] permissions = {Manifest.permission.ACCESS_COARSE_LOCATION, Manifest.permission.ACCESS_FINE_LOCATION};
-    private JSONArray mPrevArgs;
-    private CallbackContext mCbContext;
+    // getLocation requests waiting for the connection
+    private final List<OneShotRequest> mPendingRequests = new ArrayList<OneShotRequest>();
+    // getPermission calls waiting for the answer of the user
+    private final List<CallbackContext> mPermissionCallbacks = new ArrayList<CallbackContext>();
     private GApiUtils mGApiUtils;
     private GoogleApiClient mGApiClient;
+    private volatile LocationSource mSource;
+    private String mConnectMode;
+    private long mConnectStart = -1;
+    private long mSuspendedAt = -1;
+    private boolean mBackgroundService = false;
+    private GeocoderBackend mGeocoderBackend;
+    private GeocodeCache mGeocodeCache;
 
+    /**
+     * The plugin is loaded with the app to connect early, it only sets
+     * itself up here if LocationServicesConnect asks for it.
+     */
     @Override
     public void initialize(CordovaInterface cordova, CordovaWebView webView) {
         super.initialize(cordova, webView);
+        mConnectMode = preferences.getString(LocationUtils.CONNECT_PREFERENCE, "");
+        if (LocationUtils.CONNECT_ON_INITIALIZE.equals(mConnectMode)) {
+            connectEagerly();
+        }
+    }
+
+    /**
+     * Create the location source and the history, on the first request or
+     * the early connection.
+     */
+    private synchronized void setUp() {
+        if (mSource != null) {
+            return;
+        }
         mGApiClient = new GoogleApiClient.Builder(cordova.getActivity())
                 .addApi(LocationServices.API).addConnectionCallbacks(this)
-                .addOnConnectionFailedListener(getGApiUtils()).build();
+                .addOnConnectionFailedListener(getGApiUtils())
+                .addOnConnectionFailedListener(this).build();
+
+        int historySize = preferences.getInteger(LocationUtils.HISTORY_SIZE_PREFERENCE,
+                LocationUtils.HISTORY_SIZE);
+        if (historySize > 0) {
+            mHistory = new LocationHistory(historySize);
+        }
+        // Set last, the plugin is set up once mSource is not null
+        mSource = createSource();
+    }
+
+    @Override
+    public Object onMessage(String id, Object data) {
+        // Also connects again after a navigation reset the plugin
+        if ("onPageFinished".equals(id) && isEager()) {
+            connectEagerly();
+        }
+        return null;
+    }
+
+    @Override
+    public void onPause(boolean multitasking) {
+        final GeocodeCache geocodeCache = mGeocodeCache;
+        if (geocodeCache != null) {
+            cordova.getThreadPool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    geocodeCache.save();
+                }
+            });
+        }
+
+        if (mListener == null) {
+            return;
+        }
+        mListener.pause();
+
+        if (mListener.hasBackgroundWatches()) {
+            mBackgroundService = BackgroundService.start(cordova.getActivity(),
+                    preferences.getString(LocationUtils.NOTIFICATION_TITLE_PREFERENCE,
+                            "Location tracking"),
+                    preferences.getString(LocationUtils.NOTIFICATION_TEXT_PREFERENCE,
+                            "Your location is being tracked."));
+            if (!mBackgroundService) {
+                mListener.failBackgroundWatches(CordovaLocationListener.POSITION_UNAVAILABLE,
+                        "Unable to keep tracking in the background.");
+            }
+        }
+    }
+
+    @Override
+    public void onResume(boolean multitasking) {
+        stopBackgroundService();
+        if (mListener != null) {
+            mListener.resume();
+        }
+
+        // Google Play services may have been updated while paused
+        getGApiUtils().invalidate();
+
+        if (isEager()) {
+            connectEagerly();
+        }
     }
 
     @Override
@@ -84,33 +189,42 @@ public class CordovaLocationServices extends CordovaPlugin implements
 
     @Override
     public void onRequestPermissionResult(int requestCode, String[] permissions, int[] grantResults) throws JSONException {
-        PluginResult result;
+        if (LOCATION_PERMISSION_REQUEST != requestCode) {
+            return;
+        }
 
+        PluginResult.Status status = PluginResult.Status.OK;
         for (int r : grantResults) {
             if (r == PackageManager.PERMISSION_DENIED) {
-                result = new PluginResult(PluginResult.Status.ILLEGAL_ACCESS_EXCEPTION);
-                mCbContext.sendPluginResult(result);
-
-                return;
+                status = PluginResult.Status.ILLEGAL_ACCESS_EXCEPTION;
             }
         }
 
-        if (LOCATION_PERMISSION_REQUEST == requestCode) {
-
-            result = new PluginResult(PluginResult.Status.OK);
-
-            mCbContext.sendPluginResult(result);
+        List<CallbackContext> callbacks;
+        synchronized (mPermissionCallbacks) {
+            callbacks = new ArrayList<CallbackContext>(mPermissionCallbacks);
+            mPermissionCallbacks.clear();
+        }
+        for (CallbackContext callbackContext : callbacks) {
+            callbackContext.sendPluginResult(new PluginResult(status));
         }
-
-        mCbContext = null;
     }
 
     @Override
     public void onConnected(Bundle bundle) {
         Log.d(LocationUtils.APPTAG, "Location Services connected");
-        if (mWantLastLocation) {
-            mWantLastLocation = false;
-            getLastLocation();
+        long now = SystemClock.elapsedRealtime();
+        mStats.connects.incrementAndGet();
+        if (mConnectStart >= 0) {
+            mStats.connect.record(now - mConnectStart);
+            mConnectStart = -1;
+        }
+        if (mSuspendedAt >= 0) {
+            mStats.suspend.record(now - mSuspendedAt);
+            mSuspendedAt = -1;
+        }
+        for (OneShotRequest request : drainPendingRequests()) {
+            getLastLocation(request);
         }
         if (mListener != null && mWantUpdates) {
             mWantUpdates = false;
@@ -118,10 +232,30 @@ public class CordovaLocationServices extends CordovaPlugin implements
         }
     }
 
+    /**
+     * Fail the getLocation requests waiting for the connection, unless
+     * Google Play services can resolve the error. GApiUtils tells the user.
+     */
+    @Override
+    public void onConnectionFailed(ConnectionResult connectionResult) {
+        if (connectionResult.hasResolution()) {
+            // The requests wait for the resolution until they time out
+            return;
+        }
+        mConnectStart = -1;
+        for (OneShotRequest request : drainPendingRequests()) {
+            fail(CordovaLocationListener.POSITION_UNAVAILABLE,
+                    "Unable to connect to Google Play Services.",
+                    request.getCallbackContext(), false);
+        }
+    }
+
     @Override
     public void onConnectionSuspended(int i) {
         Log.i(LocationUtils.APPTAG,
                 "GoogleApiClient connection has been suspend");
+        mStats.suspends.incrementAndGet();
+        mSuspendedAt = SystemClock.elapsedRealtime();
     }
 
     /**
@@ -135,9 +269,59 @@ public class CordovaLocationServices extends CordovaPlugin implements
     public boolean execute(final String action, final JSONArray args,
                            final CallbackContext callbackContext) {
 
-        if (action == null || !action.matches("getPermission|getLocation|addWatch|clearWatch")) {
+        if (action == null || !action.matches("getPermission|getLocation|addWatch|clearWatch|addGeofences|removeGeofences|startRecording|stopRecording|getTrack|clearTrack|getStats|resetStats|ackWatch|reverseGeocode|getHistory")) {
             return false;
         }
+        setUp();
+
+        if (action.equals("getStats")) {
+            try {
+                callbackContext.success(mStats.toJSON(getWatches()));
+            } catch (JSONException e) {
+                e.printStackTrace();
+                callbackContext.error(e.getMessage());
+            }
+            return true;
+        }
+
+        if (action.equals("ackWatch")) {
+            if (mListener != null) {
+                mListener.acknowledge(args.optString(0, ""));
+            }
+            return true;
+        }
+
+        if (action.equals("resetStats")) {
+            mStats.reset();
+            for (LocationWatch watch : getWatches()) {
+                watch.resetResults();
+            }
+            callbackContext.success();
+            return true;
+        }
+
+        if (action.equals("getHistory")) {
+            if (mHistory == null) {
+                fail(CordovaLocationListener.POSITION_UNAVAILABLE,
+                        "The history is disabled.", callbackContext, false);
+            } else {
+                // [since, maxCount], the whole history by default
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK,
+                        mHistory.query(args.optLong(0, 0),
+                                args.optInt(1, mHistory.getCapacity()))));
+            }
+            return true;
+        }
+
+        if (action.equals("reverseGeocode")) {
+            reverseGeocode(args, callbackContext);
+            return true;
+        }
+
+        if (action.matches("startRecording|stopRecording|getTrack|clearTrack")) {
+            executeTrack(action, args, callbackContext);
+            return true;
+        }
 
         if (action.equals("getPermission")) {
             if (hasPermisssion()) {
@@ -146,8 +330,15 @@ public class CordovaLocationServices extends CordovaPlugin implements
 
                 return true;
             } else {
-                mCbContext = callbackContext;
-                requestPermissions(LOCATION_PERMISSION_REQUEST);
+                boolean asking;
+                synchronized (mPermissionCallbacks) {
+                    asking = !mPermissionCallbacks.isEmpty();
+                    mPermissionCallbacks.add(callbackContext);
+                }
+                // Concurrent calls share the same answer
+                if (!asking) {
+                    requestPermissions(LOCATION_PERMISSION_REQUEST);
+                }
             }
 
             return true;
@@ -159,34 +350,59 @@ public class CordovaLocationServices extends CordovaPlugin implements
         final int priority = args.optInt(2, LocationRequest.PRIORITY_HIGH_ACCURACY);
         final long interval = args.optLong(3, LocationUtils.UPDATE_INTERVAL_IN_MILLISECONDS);
         final long fastInterval = args.optLong(4, LocationUtils.FAST_INTERVAL_CEILING_IN_MILLISECONDS);
+        final JSONObject options = args.optJSONObject(5);
 
         if (action.equals("clearWatch")) {
             clearWatch(id);
             return true;
         }
 
+        if (action.equals("removeGeofences")) {
+            removeGeofences(args.optJSONArray(0));
+            callbackContext.success();
+            return true;
+        }
+
+        List<Geofence> fences = null;
+        if (action.equals("addGeofences")) {
+            try {
+                fences = readGeofences(args.getJSONArray(0), callbackContext);
+            } catch (JSONException e) {
+                e.printStackTrace();
+                callbackContext.error(e.getMessage());
+                return true;
+            }
+        }
+
+        OneShotRequest request = null;
+        if (action.equals("getLocation")) {
+            request = new OneShotRequest(args, callbackContext);
+            if (getCachedLocation(request)) {
+                return true;
+            }
+        }
+
         if (highAccuracy && isGPSdisabled()) {
             fail(CordovaLocationListener.POSITION_UNAVAILABLE,
                     "GPS is disabled on this device.", callbackContext,
                     false);
         }
 
-        if (getGApiUtils().servicesConnected()) {
-            if (!mGApiClient.isConnected()
-                    && !mGApiClient.isConnecting()) {
-                mGApiClient.connect();
-            }
+        if (mSource.isAvailable()) {
+            connect();
             if (action.equals("getLocation")) {
-                if (mGApiClient.isConnected()) {
-                    getLastLocation(args, callbackContext);
+                if (mSource.isConnected()) {
+                    getLastLocation(request);
                 } else {
-                    setWantLastLocation(args, callbackContext);
+                    addPendingRequest(request);
                 }
             } else if (action.equals("addWatch")) {
-                getListener().setLocationRequestParams(priority,
-                        interval, fastInterval);
                 mWantUpdates = true;
-                addWatch(id, callbackContext);
+                addWatch(new LocationWatch(id, callbackContext, priority,
+                        interval, fastInterval, options));
+            } else if (action.equals("addGeofences")) {
+                mWantUpdates = true;
+                getListener().addGeofences(fences);
             }
         } else {
             fail(CordovaLocationListener.POSITION_UNAVAILABLE,
@@ -201,23 +417,45 @@ public class CordovaLocationServices extends CordovaPlugin implements
      * Called when the activity is to be shut down. Stop listener.
      */
     public void onDestroy() {
-        if (mListener != null) {
-            mListener.destroy();
-        }
-        if (mGApiClient.isConnected() || mGApiClient.isConnecting()) {
-            // After disconnect() is called, the client is considered "dead".
-            mGApiClient.disconnect();
-        }
+        stop();
+        stopRecording();
     }
 
     /**
-     * Called when the view navigates. Stop the listeners.
+     * Called when the view navigates. Stop the listeners, the track
+     * recorder keeps running for the next page.
      */
     public void onReset() {
-        this.onDestroy();
+        stop();
+    }
+
+    /**
+     * Drop the watches, requests and callbacks of the page.
+     */
+    private void stop() {
+        if (mListener != null) {
+            mListener.quit();
+            mListener = null;
+        }
+        drainPendingRequests();
+        if (mGeocodeCache != null) {
+            mGeocodeCache.save();
+        }
+        stopBackgroundService();
+        if (mGApiUtils != null) {
+            mGApiUtils.destroy();
+        }
+        if (mSource != null) {
+            mSource.disconnect();
+        }
+    }
+
+    public LocationStats getStats() {
+        return mStats;
     }
 
     public JSONObject returnLocationJSON(Location loc) {
+        long start = System.nanoTime();
         JSONObject o = new JSONObject();
 
         try {
@@ -234,17 +472,152 @@ public class CordovaLocationServices extends CordovaPlugin implements
             e.printStackTrace();
         }
 
+        mStats.encode.record((System.nanoTime() - start) / 1000);
         return o;
     }
 
     public void win(Location loc, CallbackContext callbackContext,
                     boolean keepCallback) {
-        PluginResult result = new PluginResult(PluginResult.Status.OK,
-                this.returnLocationJSON(loc));
-        result.setKeepCallback(keepCallback);
+        win(new LocationPayload(loc, this), callbackContext, keepCallback);
+    }
+
+    /**
+     * Send an already encoded location back to JavaScript.
+     *
+     * @param payload The shared location payload
+     */
+    public void win(LocationPayload payload, CallbackContext callbackContext,
+                    boolean keepCallback) {
+        recordDelivery(payload);
+        callbackContext.sendPluginResult(payload.getResult(keepCallback));
+    }
+
+    /**
+     * Send a location to a watch, in the format it asked for.
+     *
+     * @param payload The shared location payload
+     */
+    public void win(LocationPayload payload, LocationWatch watch) {
+        PluginResult result;
+        if (watch.getFormat() == LocationWatch.FORMAT_COMPACT) {
+            result = payload.getCompactResult();
+        } else if (watch.getFormat() == LocationWatch.FORMAT_POLYLINE) {
+            StringBuilder polyline = new StringBuilder();
+            watch.encodePolyline(payload.getLocation(), polyline);
+            result = new PluginResult(PluginResult.Status.OK, polyline.toString());
+            result.setKeepCallback(true);
+        } else {
+            result = payload.getResult(true);
+        }
+        recordDelivery(payload);
+        watch.sent();
+        watch.getCallbackContext().sendPluginResult(result);
+    }
+
+    /**
+     * Send a batch of locations to a watch as one array, as columns with
+     * the compact format, or as one polyline chunk.
+     *
+     * @param payloads The locations, oldest first
+     */
+    public void win(List<LocationPayload> payloads, LocationWatch watch) {
+        PluginResult result;
+        if (watch.getFormat() == LocationWatch.FORMAT_COMPACT) {
+            List<Location> locs = new ArrayList<Location>(payloads.size());
+            for (LocationPayload payload : payloads) {
+                locs.add(payload.getLocation());
+            }
+            result = new PluginResult(PluginResult.Status.OK,
+                    LocationCodec.encode(locs));
+        } else if (watch.getFormat() == LocationWatch.FORMAT_POLYLINE) {
+            StringBuilder polyline = new StringBuilder();
+            for (LocationPayload payload : payloads) {
+                watch.encodePolyline(payload.getLocation(), polyline);
+            }
+            result = new PluginResult(PluginResult.Status.OK, polyline.toString());
+        } else {
+            JSONArray batch = new JSONArray();
+            for (LocationPayload payload : payloads) {
+                batch.put(payload.getJSON());
+            }
+            result = new PluginResult(PluginResult.Status.OK, batch);
+        }
+
+        for (LocationPayload payload : payloads) {
+            recordDelivery(payload);
+        }
+        result.setKeepCallback(true);
+        watch.sent();
+        watch.getCallbackContext().sendPluginResult(result);
+    }
+
+    /**
+     * Tell an adaptive watch its power tier changed.
+     *
+     * @param loc The fix which caused the change
+     */
+    public void winTier(LocationWatch watch, Location loc) {
+        MotionScheduler scheduler = watch.getScheduler();
+        JSONObject o = new JSONObject();
+        try {
+            o.put("event", "tier");
+            o.put("tier", scheduler.getTierName());
+            o.put("speed", scheduler.getSpeed());
+            o.put("priority", watch.getPriority());
+            o.put("interval", watch.getInterval());
+            o.put("timestamp", loc.getTime());
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+
+        PluginResult result = new PluginResult(PluginResult.Status.OK, o);
+        result.setKeepCallback(true);
+        mStats.results.incrementAndGet();
+        watch.sent();
+        watch.getCallbackContext().sendPluginResult(result);
+    }
+
+    /**
+     * Send a better fix to a getLocation request still refining its
+     * accuracy, its callback is kept for the final fix.
+     */
+    public void winProgress(LocationPayload payload, CallbackContext callbackContext) {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("event", "progress");
+            o.put("position", payload.getJSON());
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+
+        PluginResult result = new PluginResult(PluginResult.Status.OK, o);
+        result.setKeepCallback(true);
+        recordDelivery(payload);
         callbackContext.sendPluginResult(result);
     }
 
+    /**
+     * Send a geofence transition to the callback which added the zone.
+     *
+     * @param transition One of the GeofenceMonitor transitions
+     * @param payload    The fix which caused the transition
+     */
+    public void win(Geofence fence, String transition, LocationPayload payload) {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("id", fence.getId());
+            o.put("transition", transition);
+            o.put("position", payload.getJSON());
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+
+        PluginResult result = new PluginResult(PluginResult.Status.OK, o);
+        result.setKeepCallback(true);
+        mStats.results.incrementAndGet();
+        fence.getCallbackContext().sendPluginResult(result);
+    }
+
     /**
      * Location failed. Send error back to JavaScript.
      *
@@ -271,9 +644,17 @@ public class CordovaLocationServices extends CordovaPlugin implements
         }
 
         result.setKeepCallback(keepCallback);
+        mStats.results.incrementAndGet();
+        mStats.errors.incrementAndGet();
         callbackContext.sendPluginResult(result);
     }
 
+    private void recordDelivery(LocationPayload payload) {
+        mStats.results.incrementAndGet();
+        mStats.fixAge.record(System.currentTimeMillis()
+                - payload.getLocation().getTime());
+    }
+
     private boolean isGPSdisabled() {
         boolean gps_enabled;
         LocationManager lm = (LocationManager) this.cordova.getActivity().getSystemService(
@@ -288,64 +669,362 @@ public class CordovaLocationServices extends CordovaPlugin implements
         return !gps_enabled;
     }
 
-    private void getLastLocation() {
-        getLastLocation(mPrevArgs, mCbContext);
-        mCbContext = null;
-        mPrevArgs = null;
+    private void getLastLocation(final OneShotRequest request) {
+        // The client engine may still be fetching the last known location
+        boolean fetching = mSource.awaitLastLocation(new Runnable() {
+            @Override
+            public void run() {
+                answerFromLastLocation(request);
+            }
+        }, getListener().getLooper());
+        if (!fetching) {
+            answerFromLastLocation(request);
+        }
+    }
+
+    private void answerFromLastLocation(OneShotRequest request) {
+        Location last = mSource.getLastLocation();
+        // Check if we can use lastKnownLocation to get a quick reading and use
+        // less battery
+        if (last != null && request.acceptsCached(last)) {
+            win(last, request.getCallbackContext(), false);
+        } else {
+            getListener().addRequest(request);
+        }
+    }
+
+    /**
+     * Answer a getLocation request with a fix the plugin already received,
+     * without asking Google Play Services.
+     *
+     * @return true if the request was answered
+     */
+    private boolean getCachedLocation(OneShotRequest request) {
+        long maximumAge = request.getMaximumAge();
+        if (maximumAge <= 0) {
+            return false;
+        }
+
+        Location cached = mCache.get(maximumAge, request.getTargetAccuracy());
+        if (cached == null) {
+            return false;
+        }
+
+        Log.d(LocationUtils.APPTAG, "Using a cached location");
+        mStats.cacheHits.incrementAndGet();
+        win(cached, request.getCallbackContext(), false);
+        return true;
+    }
+
+    /**
+     * Called by the listener for every fix received from the provider.
+     */
+    public void onLocation(Location loc) {
+        mCache.put(loc);
+        if (mHistory != null) {
+            mHistory.put(loc);
+        }
+
+        TrackStore store = mTrackStore;
+        if (store != null) {
+            store.append(loc);
+        }
     }
 
-    private void getLastLocation(JSONArray args, CallbackContext callbackContext) {
-        int maximumAge;
+    /**
+     * Manage the track recorder.
+     */
+    private void executeTrack(String action, JSONArray args,
+                              CallbackContext callbackContext) {
         try {
-            maximumAge = args.getInt(0);
+            if (action.equals("startRecording")) {
+                int capacity = args.optInt(0, LocationUtils.TRACK_CAPACITY);
+                if (capacity <= 0 || capacity > TrackStore.MAX_CAPACITY) {
+                    callbackContext.error("The capacity must be a positive number up to "
+                            + TrackStore.MAX_CAPACITY + ".");
+                    return;
+                }
+                if (mTrackStore != null && args.length() > 0
+                        && capacity != mTrackStore.getCapacity()) {
+                    callbackContext.error("The recorder is already started with a capacity of "
+                            + mTrackStore.getCapacity() + ", stop it first.");
+                    return;
+                }
+                if (mTrackStore == null) {
+                    File file = new File(cordova.getActivity().getFilesDir(),
+                            LocationUtils.TRACK_FILE);
+                    mTrackStore = new TrackStore(file, capacity);
+                }
+                callbackContext.success();
+            } else if (action.equals("stopRecording")) {
+                stopRecording();
+                callbackContext.success();
+            } else if (action.equals("clearTrack")) {
+                if (mTrackStore != null) {
+                    mTrackStore.clear();
+                }
+                callbackContext.success();
+            } else if (mTrackStore == null) {
+                fail(CordovaLocationListener.POSITION_UNAVAILABLE,
+                        "The track recorder is not started.", callbackContext,
+                        false);
+            } else {
+                callbackContext.success(mTrackStore.query(
+                        args.optLong(0, 0), args.optLong(1, Long.MAX_VALUE),
+                        args.optLong(2, -1),
+                        args.optInt(3, LocationUtils.TRACK_PAGE_SIZE)));
+            }
+        } catch (IOException e) {
+            Log.e(LocationUtils.APPTAG, "Unable to open the track file", e);
+            fail(CordovaLocationListener.POSITION_UNAVAILABLE,
+                    "Unable to open the track file.", callbackContext, false);
         } catch (JSONException e) {
             e.printStackTrace();
-            maximumAge = 0;
+            callbackContext.error(e.getMessage());
         }
-        Location last = LocationServices.FusedLocationApi
-                .getLastLocation(mGApiClient);
-        // Check if we can use lastKnownLocation to get a quick reading and use
-        // less battery
-        if (last != null
-                && (System.currentTimeMillis() - last.getTime()) <= maximumAge) {
-            PluginResult result = new PluginResult(PluginResult.Status.OK,
-                    returnLocationJSON(last));
-            callbackContext.sendPluginResult(result);
-        } else {
-            getCurrentLocation(callbackContext, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the addresses of a point: [latitude, longitude, precision]. The
+     * addresses are those of the geohash cell of the point.
+     */
+    private void reverseGeocode(JSONArray args, final CallbackContext callbackContext) {
+        GeocodeCache cache = getGeocodeCache();
+        if (!cache.isAvailable()) {
+            fail(CordovaLocationListener.POSITION_UNAVAILABLE,
+                    "Geocoder is not available on this device.", callbackContext, false);
+            return;
         }
+
+        double latitude;
+        double longitude;
+        try {
+            latitude = args.getDouble(0);
+            longitude = args.getDouble(1);
+        } catch (JSONException e) {
+            e.printStackTrace();
+            callbackContext.error(e.getMessage());
+            return;
+        }
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180
+                || Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            callbackContext.error("The latitude must be between -90 and 90, "
+                    + "the longitude between -180 and 180.");
+            return;
+        }
+        int precision = args.optInt(2, 0);
+        if (precision <= 0) {
+            precision = preferences.getInteger(LocationUtils.GEOCODE_PRECISION_PREFERENCE,
+                    LocationUtils.GEOCODE_PRECISION);
+        }
+        precision = Math.max(1, Math.min(precision, Geohash.MAX_PRECISION));
+
+        cache.lookup(latitude, longitude, precision, new GeocodeCache.Callback() {
+            @Override
+            public void onAddresses(JSONArray addresses) {
+                callbackContext.success(addresses);
+            }
+
+            @Override
+            public void onError(String message) {
+                fail(CordovaLocationListener.POSITION_UNAVAILABLE, message,
+                        callbackContext, false);
+            }
+        });
     }
 
-    private void setWantLastLocation(JSONArray args,
-                                     CallbackContext callbackContext) {
-        mPrevArgs = args;
-        mCbContext = callbackContext;
-        mWantLastLocation = true;
+    /**
+     * Replace the Geocoder used by reverseGeocode, with a local stub in
+     * tests. The cached addresses are dropped.
+     */
+    public synchronized void setGeocoderBackend(GeocoderBackend backend) {
+        mGeocoderBackend = backend;
+        mGeocodeCache = null;
+    }
+
+    private synchronized GeocodeCache getGeocodeCache() {
+        if (mGeocodeCache == null) {
+            if (mGeocoderBackend == null) {
+                mGeocoderBackend = new PlatformGeocoderBackend(cordova.getActivity());
+            }
+            File file = null;
+            if (preferences.getBoolean(LocationUtils.GEOCODE_PERSIST_PREFERENCE, false)) {
+                file = new File(cordova.getActivity().getFilesDir(), LocationUtils.GEOCODE_FILE);
+            }
+            mGeocodeCache = new GeocodeCache(mGeocoderBackend, cordova.getThreadPool(), mStats,
+                    preferences.getInteger(LocationUtils.GEOCODE_CACHE_SIZE_PREFERENCE,
+                            LocationUtils.GEOCODE_CACHE_SIZE), file);
+        }
+        return mGeocodeCache;
+    }
+
+    private void stopRecording() {
+        TrackStore store = mTrackStore;
+        mTrackStore = null;
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private void addPendingRequest(OneShotRequest request) {
+        synchronized (mPendingRequests) {
+            mPendingRequests.add(request);
+        }
+        // Fails the request if the connection takes longer than its timeout
+        getListener().addPendingTimeout(request, mPendingRequests);
+    }
+
+    /**
+     * @return The getLocation requests received before the connection, the
+     * queue is emptied
+     */
+    private List<OneShotRequest> drainPendingRequests() {
+        synchronized (mPendingRequests) {
+            List<OneShotRequest> requests = new ArrayList<OneShotRequest>(mPendingRequests);
+            mPendingRequests.clear();
+            return requests;
+        }
+    }
+
+    private void connect() {
+        if (!mSource.isConnected() && mConnectStart < 0) {
+            mConnectStart = SystemClock.elapsedRealtime();
+        }
+        // Does nothing if the source is connected or connecting
+        mSource.connect();
+    }
+
+    private void stopBackgroundService() {
+        if (mBackgroundService) {
+            BackgroundService.stop(cordova.getActivity());
+            mBackgroundService = false;
+        }
+    }
+
+    private boolean isEager() {
+        return LocationUtils.CONNECT_ON_INITIALIZE.equals(mConnectMode)
+                || LocationUtils.CONNECT_ON_PAGE_LOAD.equals(mConnectMode);
+    }
+
+    /**
+     * Connect before the first request so that it does not wait for the
+     * connection. Does nothing if Google Play services is not available, the
+     * user is only told about it by a request.
+     */
+    private void connectEagerly() {
+        setUp();
+        if (getGApiUtils().isAvailable()) {
+            connect();
+        }
     }
 
     private void clearWatch(String id) {
         getListener().clearWatch(id);
     }
 
-    private void getCurrentLocation(CallbackContext callbackContext, int timeout) {
-        getListener().addCallback(callbackContext, timeout);
+    private List<Geofence> readGeofences(JSONArray zones,
+                                         CallbackContext callbackContext) throws JSONException {
+        List<Geofence> fences = new ArrayList<Geofence>(zones.length());
+        for (int i = 0; i < zones.length(); i++) {
+            fences.add(new Geofence(zones.getJSONObject(i), callbackContext));
+        }
+        return fences;
+    }
+
+    private void removeGeofences(JSONArray ids) {
+        if (mListener == null) {
+            return;
+        }
+
+        List<String> list = null;
+        if (ids != null) {
+            list = new ArrayList<String>(ids.length());
+            for (int i = 0; i < ids.length(); i++) {
+                list.add(ids.optString(i));
+            }
+        }
+        mListener.removeGeofences(list);
+    }
+
+    private void addWatch(LocationWatch watch) {
+        if (watch.isBackground()) {
+            requestNotificationPermission();
+        }
+        getListener().addWatch(watch);
     }
 
-    private void addWatch(String timerId, CallbackContext callbackContext) {
-        getListener().addWatch(timerId, callbackContext);
+    /**
+     * Ask to show the notification of the background service, needed since
+     * Android 13. The service runs without it, the user does not see it.
+     */
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && PackageManager.PERMISSION_DENIED == cordova.getActivity()
+                .checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS)) {
+            cordova.requestPermissions(this, NOTIFICATION_PERMISSION_REQUEST,
+                    new String[]{Manifest.permission.POST_NOTIFICATIONS});
+        }
+    }
+
+    private Collection<LocationWatch> getWatches() {
+        if (mListener == null) {
+            return Collections.emptyList();
+        }
+        return mListener.watches.values();
     }
 
     private CordovaLocationListener getListener() {
         if (mListener == null) {
-            mListener = new CordovaLocationListener(mGApiClient, this,
+            mListener = new CordovaLocationListener(mSource, this,
                     LocationUtils.APPTAG);
         }
         return mListener;
     }
 
+    /**
+     * @return The trace replay source when the LocationServicesReplay
+     * preference names a readable trace, the fused provider otherwise,
+     * through its client when LocationServicesEngine is "client", or the
+     * providers of the platform when it is "platform", or "auto" without
+     * Google Play services
+     */
+    private LocationSource createSource() {
+        String path = preferences.getString(LocationUtils.REPLAY_PREFERENCE, "");
+        if (path.length() > 0) {
+            File trace = new File(path);
+            if (!trace.isAbsolute()) {
+                trace = new File(cordova.getActivity().getFilesDir(), path);
+            }
+            try {
+                ReplayLocationSource source = ReplayLocationSource.open(trace,
+                        preferences.getDouble(LocationUtils.REPLAY_SPEED_PREFERENCE, 1),
+                        preferences.getBoolean(LocationUtils.REPLAY_LOOP_PREFERENCE, false));
+                Log.i(LocationUtils.APPTAG, "Replaying " + source.size() + " fixes from " + trace);
+                return source;
+            } catch (IOException e) {
+                Log.e(LocationUtils.APPTAG, "Could not read the trace " + trace, e);
+            } catch (IllegalArgumentException e) {
+                Log.e(LocationUtils.APPTAG, "Could not replay the trace " + trace, e);
+            }
+        }
+        String engine = preferences.getString(LocationUtils.ENGINE_PREFERENCE, "");
+        if (LocationUtils.ENGINE_PLATFORM.equals(engine)
+                || (LocationUtils.ENGINE_AUTO.equals(engine) && !getGApiUtils().isAvailable())) {
+            Log.i(LocationUtils.APPTAG, "Using the location providers of the platform");
+            return new PlatformLocationSource((LocationManager) cordova.getActivity()
+                    .getSystemService(Context.LOCATION_SERVICE));
+        }
+        if (LocationUtils.ENGINE_CLIENT.equals(engine)) {
+            return new FusedClientLocationSource(
+                    LocationServices.getFusedLocationProviderClient(cordova.getActivity()),
+                    getGApiUtils());
+        }
+        return new FusedLocationSource(mGApiClient, getGApiUtils());
+    }
+
     private GApiUtils getGApiUtils() {
         if (mGApiUtils == null) {
-            mGApiUtils = new GApiUtils(cordova);
+            mGApiUtils = new GApiUtils(cordova, mStats);
         }
         return mGApiUtils;
     }
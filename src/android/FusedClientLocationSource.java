@@ -0,0 +1,189 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The fused location provider through its connectionless client. Nothing
+ * waits for a connection, and one-shot requests get a single fix instead of
+ * a subscription.
+ */
+public class FusedClientLocationSource implements LocationSource {
+
+    private final FusedLocationProviderClient mClient;
+    private final GApiUtils mGApiUtils;
+    private final LocationCallbacks mCallbacks = new LocationCallbacks() {
+        @Override
+        protected void onResult(LocationResult result) {
+            setLastLocation(result.getLastLocation());
+        }
+    };
+    private volatile Location mLastLocation;
+    // The last known location fetched on connect, null until then
+    private volatile Task<Location> mLastLocationTask;
+
+    public FusedClientLocationSource(FusedLocationProviderClient client, GApiUtils utils) {
+        mClient = client;
+        mGApiUtils = utils;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return mGApiUtils.servicesConnected();
+    }
+
+    /**
+     * Nothing to connect, fetch the last known location once so that
+     * getLastLocation has it for the next requests.
+     */
+    @Override
+    public void connect() {
+        if (mLastLocationTask != null) {
+            return;
+        }
+        Task<Location> task = mClient.getLastLocation();
+        mLastLocationTask = task;
+        task.addOnSuccessListener(new OnSuccessListener<Location>() {
+            @Override
+            public void onSuccess(Location location) {
+                setLastLocation(location);
+            }
+        });
+    }
+
+    /**
+     * Nothing to disconnect, the last known location is fetched again on
+     * the next connect.
+     */
+    @Override
+    public void disconnect() {
+        mLastLocationTask = null;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public Location getLastLocation() {
+        return mLastLocation;
+    }
+
+    /**
+     * Runs the task once the last known location fetched on connect arrives,
+     * the first request would miss it otherwise.
+     */
+    @Override
+    public boolean awaitLastLocation(final Runnable task, Looper looper) {
+        Task<Location> pending = mLastLocationTask;
+        if (pending == null || pending.isComplete()) {
+            return false;
+        }
+        pending.addOnCompleteListener(executor(looper), new OnCompleteListener<Location>() {
+            @Override
+            public void onComplete(Task<Location> completed) {
+                // The success listener of connect may not have run yet
+                if (completed.isSuccessful()) {
+                    setLastLocation(completed.getResult());
+                }
+                task.run();
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public void requestLocationUpdates(LocationRequest request,
+                                       Listener listener, Looper looper) {
+        mClient.requestLocationUpdates(request, mCallbacks.get(listener), looper);
+    }
+
+    @Override
+    public void removeLocationUpdates(Listener listener) {
+        LocationCallback callback = mCallbacks.remove(listener);
+        if (callback != null) {
+            mClient.removeLocationUpdates(callback);
+        }
+    }
+
+    @Override
+    public boolean getCurrentLocation(int priority, float maximumAccuracy,
+                                      final CancellationToken token,
+                                      final SingleFixCallback callback, Looper looper) {
+        // The fused provider picks the fix, the caller checks its accuracy
+        Executor executor = executor(looper);
+        mClient.getCurrentLocation(priority, token)
+                .addOnSuccessListener(executor, new OnSuccessListener<Location>() {
+                    @Override
+                    public void onSuccess(Location location) {
+                        if (!token.isCancellationRequested()) {
+                            setLastLocation(location);
+                            callback.onSingleFix(location);
+                        }
+                    }
+                })
+                .addOnFailureListener(executor, new OnFailureListener() {
+                    @Override
+                    public void onFailure(Exception e) {
+                        if (!token.isCancellationRequested()) {
+                            Log.w(LocationUtils.APPTAG, "Unable to get the current location", e);
+                            callback.onSingleFix(null);
+                        }
+                    }
+                });
+        return true;
+    }
+
+    /**
+     * @return An executor running the listeners of a task on the looper
+     */
+    private static Executor executor(Looper looper) {
+        final Handler handler = new Handler(looper);
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        };
+    }
+
+    private void setLastLocation(Location location) {
+        Location last = mLastLocation;
+        if (location != null && (last == null || location.getTime() >= last.getTime())) {
+            mLastLocation = location;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.os.Looper;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.CancellationToken;
+
+/**
+ * The fused location provider of Google Play services, the default source.
+ */
+public class FusedLocationSource implements LocationSource {
+
+    private final GoogleApiClient mGApiClient;
+    private final GApiUtils mGApiUtils;
+    private final LocationCallbacks mCallbacks = new LocationCallbacks();
+
+    public FusedLocationSource(GoogleApiClient client, GApiUtils utils) {
+        mGApiClient = client;
+        mGApiUtils = utils;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return mGApiUtils.servicesConnected();
+    }
+
+    @Override
+    public void connect() {
+        if (!mGApiClient.isConnected() && !mGApiClient.isConnecting()) {
+            mGApiClient.connect();
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        if (mGApiClient.isConnected() || mGApiClient.isConnecting()) {
+            // After disconnect() is called, the client is considered "dead".
+            mGApiClient.disconnect();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return mGApiClient.isConnected();
+    }
+
+    @Override
+    public Location getLastLocation() {
+        return LocationServices.FusedLocationApi.getLastLocation(mGApiClient);
+    }
+
+    @Override
+    public boolean awaitLastLocation(Runnable task, Looper looper) {
+        return false;
+    }
+
+    @Override
+    public void requestLocationUpdates(LocationRequest request,
+                                       Listener listener, Looper looper) {
+        LocationServices.FusedLocationApi.requestLocationUpdates(
+                mGApiClient, request, mCallbacks.get(listener), looper);
+    }
+
+    @Override
+    public void removeLocationUpdates(Listener listener) {
+        LocationCallback callback = mCallbacks.remove(listener);
+        if (callback != null && mGApiClient.isConnected()) {
+            LocationServices.FusedLocationApi.removeLocationUpdates(
+                    mGApiClient, callback);
+        }
+    }
+
+    @Override
+    public boolean getCurrentLocation(int priority, float maximumAccuracy,
+                                      CancellationToken token, SingleFixCallback callback, Looper looper) {
+        // GoogleApiClient has no single fix request
+        return false;
+    }
+}
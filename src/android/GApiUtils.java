@@ -17,6 +17,10 @@
 package fr.louisbl.cordova.locationservices;
 
 import android.app.Dialog;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.IntentSender;
 import android.util.Log;
 
@@ -28,10 +32,32 @@ import org.apache.cordova.CordovaInterface;
 
 public class GApiUtils implements GoogleApiClient.OnConnectionFailedListener {
 
+    private static final int UNKNOWN = -1;
+
     private final CordovaInterface mCordova;
+    private final LocationStats mStats;
+    private volatile int mAvailability = UNKNOWN;
+    private boolean mReceiverRegistered = false;
+
+    /**
+     * Forgets the availability of Google Play services when it is installed,
+     * updated or removed.
+     */
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (intent.getData() != null
+                    && GooglePlayServicesUtil.GOOGLE_PLAY_SERVICES_PACKAGE.equals(
+                    intent.getData().getSchemeSpecificPart())) {
+                Log.d(LocationUtils.APPTAG, "Google Play Services package changed");
+                invalidate();
+            }
+        }
+    };
 
-    public GApiUtils(CordovaInterface cordova) {
+    public GApiUtils(CordovaInterface cordova, LocationStats stats) {
         mCordova = cordova;
+        mStats = stats;
     }
 
     /*
@@ -39,6 +65,10 @@ public class GApiUtils implements GoogleApiClient.OnConnectionFailedListener {
      */
     @Override
     public void onConnectionFailed(ConnectionResult connectionResult) {
+        mStats.connectionFailures.incrementAndGet();
+        // The failure may come from an update of Google Play services
+        invalidate();
+
         /*
          * Google Play services can resolve some errors it detects. If the error
 		 * has a resolution, try sending an Intent to start a Google Play
@@ -69,8 +99,7 @@ public class GApiUtils implements GoogleApiClient.OnConnectionFailedListener {
     public boolean servicesConnected() {
 
         // Check that Google Play services is available
-        int resultCode = GooglePlayServicesUtil
-                .isGooglePlayServicesAvailable(mCordova.getActivity());
+        int resultCode = getAvailability();
 
         // If Google Play services is available
         if (ConnectionResult.SUCCESS == resultCode) {
@@ -86,6 +115,64 @@ public class GApiUtils implements GoogleApiClient.OnConnectionFailedListener {
         }
     }
 
+    /**
+     * Check that Google Play services is available without telling the
+     * user if it is not.
+     *
+     * @return true if Google Play services is available, otherwise false
+     */
+    public boolean isAvailable() {
+        return ConnectionResult.SUCCESS == getAvailability();
+    }
+
+    /**
+     * Check the availability of Google Play services again next time.
+     * Called when the app is resumed, the user may have updated it meanwhile.
+     */
+    public void invalidate() {
+        mAvailability = UNKNOWN;
+    }
+
+    /**
+     * Stop listening to package changes. The next check registers again.
+     */
+    public synchronized void destroy() {
+        invalidate();
+        if (mReceiverRegistered) {
+            mReceiverRegistered = false;
+            mCordova.getActivity().unregisterReceiver(mPackageReceiver);
+        }
+    }
+
+    /**
+     * @return The cached result of
+     * GooglePlayServicesUtil.isGooglePlayServicesAvailable
+     */
+    private int getAvailability() {
+        int resultCode = mAvailability;
+        if (resultCode == UNKNOWN) {
+            registerReceiver();
+            resultCode = GooglePlayServicesUtil
+                    .isGooglePlayServicesAvailable(mCordova.getActivity());
+            mAvailability = resultCode;
+        }
+        return resultCode;
+    }
+
+    private synchronized void registerReceiver() {
+        if (mReceiverRegistered) {
+            return;
+        }
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        mCordova.getActivity().registerReceiver(mPackageReceiver, filter);
+        mReceiverRegistered = true;
+    }
+
     /**
      * Show a dialog returned by Google Play services for the connection error
      * code
@@ -0,0 +1,259 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Reverse geocoding results keyed by geohash, so the fixes of the same
+ * street share one Geocoder call.
+ * <p/>
+ * The least recently used cells are evicted beyond the capacity. Concurrent
+ * lookups of a cell wait for the same call. The cells can be kept in a file
+ * across sessions.
+ */
+public class GeocodeCache {
+
+    /**
+     * Receives the result of a lookup, on the thread of the caller for a
+     * cached cell, on the worker thread otherwise.
+     */
+    public interface Callback {
+
+        void onAddresses(JSONArray addresses);
+
+        void onError(String message);
+    }
+
+    private final GeocoderBackend mBackend;
+    private final Executor mExecutor;
+    private final LocationStats mStats;
+    private final File mFile;
+    private final Map<String, JSONArray> mCells;
+    // Callbacks waiting for the Geocoder, by cell
+    private final Map<String, List<Callback>> mPending = new HashMap<String, List<Callback>>();
+    private boolean mLoaded = false;
+    private boolean mDirty = false;
+
+    /**
+     * @param executor Runs the Geocoder calls
+     * @param file     The file keeping the cells across sessions, or null
+     */
+    public GeocodeCache(GeocoderBackend backend, Executor executor, LocationStats stats,
+                        final int capacity, File file) {
+        mBackend = backend;
+        mExecutor = executor;
+        mStats = stats;
+        mFile = file;
+        // Iterates from the least recently used cell
+        mCells = new LinkedHashMap<String, JSONArray>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JSONArray> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public boolean isAvailable() {
+        return mBackend.isAvailable();
+    }
+
+    /**
+     * Get the addresses of the cell of a point, from the cache or from the
+     * Geocoder.
+     *
+     * @param precision The length of the geohash of the cell
+     */
+    public void lookup(final double latitude, final double longitude, int precision,
+                       Callback callback) {
+        final String key = Geohash.encode(latitude, longitude, precision);
+        JSONArray cached;
+        synchronized (this) {
+            load();
+            cached = mCells.get(key);
+            if (cached == null) {
+                List<Callback> waiting = mPending.get(key);
+                if (waiting != null) {
+                    mStats.geocodeShared.incrementAndGet();
+                    waiting.add(callback);
+                    return;
+                }
+                waiting = new ArrayList<Callback>();
+                waiting.add(callback);
+                mPending.put(key, waiting);
+            }
+        }
+
+        if (cached != null) {
+            mStats.geocodeHits.incrementAndGet();
+            callback.onAddresses(cached);
+            return;
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                resolve(key, latitude, longitude);
+            }
+        });
+    }
+
+    /**
+     * Write the cells to the file if they changed since the last save.
+     */
+    public void save() {
+        if (mFile == null) {
+            return;
+        }
+
+        JSONArray entries = new JSONArray();
+        synchronized (this) {
+            if (!mDirty) {
+                return;
+            }
+            mDirty = false;
+            for (Map.Entry<String, JSONArray> cell : mCells.entrySet()) {
+                entries.put(new JSONArray().put(cell.getKey()).put(cell.getValue()));
+            }
+        }
+
+        // Replace the file at once so that a crash never leaves half of it
+        File tmp = new File(mFile.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            out.write(entries.toString().getBytes("UTF-8"));
+            out.close();
+            out = null;
+            if (!tmp.renameTo(mFile)) {
+                throw new IOException("Unable to rename " + tmp);
+            }
+        } catch (IOException e) {
+            Log.e(LocationUtils.APPTAG, "Unable to save the geocoding cache", e);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private void resolve(String key, double latitude, double longitude) {
+        mStats.geocodeCalls.incrementAndGet();
+        long start = SystemClock.elapsedRealtime();
+        JSONArray addresses = null;
+        String error = "Reverse geocoding failed.";
+        List<Callback> waiting;
+        try {
+            addresses = mBackend.getAddresses(latitude, longitude,
+                    LocationUtils.GEOCODE_MAX_RESULTS);
+        } catch (IOException e) {
+            Log.w(LocationUtils.APPTAG, "Reverse geocoding failed", e);
+            if (e.getMessage() != null) {
+                error = e.getMessage();
+            }
+        } catch (RuntimeException e) {
+            // The Geocoder rejects some coordinates
+            Log.w(LocationUtils.APPTAG, "Reverse geocoding failed", e);
+        } finally {
+            mStats.geocode.record(SystemClock.elapsedRealtime() - start);
+            synchronized (this) {
+                // The lookups of the cell always get an answer
+                waiting = mPending.remove(key);
+                // Failures are not cached, the next lookup tries again
+                if (addresses != null) {
+                    mCells.put(key, addresses);
+                    mDirty = true;
+                }
+            }
+        }
+
+        for (Callback callback : waiting) {
+            if (addresses != null) {
+                callback.onAddresses(addresses);
+            } else {
+                callback.onError(error);
+            }
+        }
+    }
+
+    /**
+     * Read the cells saved by a previous session, once.
+     */
+    private void load() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        if (mFile == null || !mFile.exists()) {
+            return;
+        }
+
+        InputStream in = null;
+        try {
+            in = new FileInputStream(mFile);
+            byte[] data = new byte[(int) mFile.length()];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            JSONArray entries = new JSONArray(new String(data, 0, read, "UTF-8"));
+            // Saved from the least recently used cell
+            for (int i = 0; i < entries.length(); i++) {
+                JSONArray entry = entries.getJSONArray(i);
+                mCells.put(entry.getString(0), entry.getJSONArray(1));
+            }
+        } catch (IOException e) {
+            Log.e(LocationUtils.APPTAG, "Unable to read the geocoding cache", e);
+        } catch (JSONException e) {
+            Log.e(LocationUtils.APPTAG, "Ignoring a corrupted geocoding cache", e);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing left to do
+            }
+        }
+    }
+}
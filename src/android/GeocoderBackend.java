@@ -0,0 +1,46 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import org.json.JSONArray;
+
+import java.io.IOException;
+
+/**
+ * Turns coordinates into addresses for reverseGeocode: the Geocoder of the
+ * platform, or a local stub in tests.
+ */
+public interface GeocoderBackend {
+
+    /**
+     * @return true if the backend can answer, the platform Geocoder may be
+     * missing
+     */
+    boolean isAvailable();
+
+    /**
+     * Called on a worker thread, the call may block on the network.
+     *
+     * @return The addresses as JSON objects, best match first, empty if none
+     * is known
+     * @throws IOException If the backend could not be reached
+     */
+    JSONArray getAddresses(double latitude, double longitude, int maxResults)
+            throws IOException;
+}
@@ -0,0 +1,192 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A circular or polygonal zone monitored by the plugin, with the state of
+ * the device relative to it.
+ * <p/>
+ * The state is only used on the looper thread of the listener.
+ */
+public class Geofence {
+
+    private final String mId;
+    private final CallbackContext mCallbackContext;
+    private final long mLoiteringDelay;
+
+    // Circle, or NaN radius for a polygon
+    private final double mLatitude;
+    private final double mLongitude;
+    private final double mRadius;
+    private final double mCos;
+
+    // Polygon vertices
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+
+    // Bounding box
+    private final double mSouth;
+    private final double mNorth;
+    private final double mWest;
+    private final double mEast;
+
+    private boolean mInside = false;
+    private long mEnteredAt;
+    private boolean mDwelled = false;
+
+    /**
+     * Read a zone sent by JavaScript: a circle with a "latitude", a
+     * "longitude" and a "radius" in meters, or a polygon with "vertices",
+     * an array of [latitude, longitude] pairs.
+     *
+     * @param o               The zone
+     * @param callbackContext The callback receiving its transitions
+     */
+    public Geofence(JSONObject o, CallbackContext callbackContext) throws JSONException {
+        mId = o.getString("id");
+        mCallbackContext = callbackContext;
+        mLoiteringDelay = Math.max(0, o.optLong("loiteringDelay", 0));
+
+        JSONArray vertices = o.optJSONArray("vertices");
+        if (vertices == null) {
+            mLatitude = o.getDouble("latitude");
+            mLongitude = o.getDouble("longitude");
+            mRadius = o.getDouble("radius");
+            mCos = Math.cos(Math.toRadians(mLatitude));
+            mLatitudes = null;
+            mLongitudes = null;
+
+            double dLat = Math.toDegrees(mRadius / LocationUtils.EARTH_RADIUS);
+            double dLon = dLat / Math.max(mCos, 1e-6);
+            mSouth = mLatitude - dLat;
+            mNorth = mLatitude + dLat;
+            mWest = mLongitude - dLon;
+            mEast = mLongitude + dLon;
+            return;
+        }
+
+        if (vertices.length() < 3) {
+            throw new JSONException("A polygon needs at least 3 vertices: " + mId);
+        }
+
+        mLatitude = Double.NaN;
+        mLongitude = Double.NaN;
+        mRadius = Double.NaN;
+        mCos = Double.NaN;
+        mLatitudes = new double[vertices.length()];
+        mLongitudes = new double[vertices.length()];
+
+        double south = Double.MAX_VALUE, north = -Double.MAX_VALUE;
+        double west = Double.MAX_VALUE, east = -Double.MAX_VALUE;
+        for (int i = 0; i < vertices.length(); i++) {
+            JSONArray vertex = vertices.getJSONArray(i);
+            mLatitudes[i] = vertex.getDouble(0);
+            mLongitudes[i] = vertex.getDouble(1);
+            south = Math.min(south, mLatitudes[i]);
+            north = Math.max(north, mLatitudes[i]);
+            west = Math.min(west, mLongitudes[i]);
+            east = Math.max(east, mLongitudes[i]);
+        }
+        mSouth = south;
+        mNorth = north;
+        mWest = west;
+        mEast = east;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public CallbackContext getCallbackContext() {
+        return mCallbackContext;
+    }
+
+    public double getSouth() {
+        return mSouth;
+    }
+
+    public double getNorth() {
+        return mNorth;
+    }
+
+    public double getWest() {
+        return mWest;
+    }
+
+    public double getEast() {
+        return mEast;
+    }
+
+    public boolean contains(double latitude, double longitude) {
+        if (latitude < mSouth || latitude > mNorth
+                || longitude < mWest || longitude > mEast) {
+            return false;
+        }
+
+        if (mLatitudes == null) {
+            double dx = LocationUtils.metersEast(longitude, mLongitude, mCos);
+            double dy = LocationUtils.metersNorth(latitude, mLatitude);
+            return Math.sqrt(dx * dx + dy * dy) <= mRadius;
+        }
+
+        // Even-odd rule, a ray going east from the point
+        boolean inside = false;
+        for (int i = 0, j = mLatitudes.length - 1; i < mLatitudes.length; j = i++) {
+            if ((mLatitudes[i] > latitude) != (mLatitudes[j] > latitude)
+                    && longitude < mLongitudes[i] + (latitude - mLatitudes[i])
+                    * (mLongitudes[j] - mLongitudes[i]) / (mLatitudes[j] - mLatitudes[i])) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    public boolean isInside() {
+        return mInside;
+    }
+
+    public void enter(long time) {
+        mInside = true;
+        mEnteredAt = time;
+        mDwelled = false;
+    }
+
+    public void exit() {
+        mInside = false;
+        mDwelled = false;
+    }
+
+    /**
+     * @return true the first time the device has been inside the zone for
+     * the loitering delay, if one was given
+     */
+    public boolean dwell(long time) {
+        if (!mInside || mDwelled || mLoiteringDelay <= 0
+                || time - mEnteredAt < mLoiteringDelay) {
+            return false;
+        }
+        mDwelled = true;
+        return true;
+    }
+}
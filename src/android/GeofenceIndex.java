@@ -0,0 +1,119 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid of geofences, so that a fix is only tested against the zones
+ * around it.
+ * <p/>
+ * Every zone is registered in the cells its bounding box overlaps. Zones
+ * covering too many cells are kept apart and tested against every fix.
+ */
+public class GeofenceIndex {
+
+    private final double mCellSize;
+    private final int mMaxCells;
+    private final Map<Long, List<Geofence>> mCells = new HashMap<Long, List<Geofence>>();
+    private final List<Geofence> mLarge = new ArrayList<Geofence>();
+
+    /**
+     * @param cellSize The size of a cell in degrees
+     * @param maxCells The number of cells above which a zone is tested
+     *                 against every fix
+     */
+    public GeofenceIndex(double cellSize, int maxCells) {
+        mCellSize = cellSize;
+        mMaxCells = maxCells;
+    }
+
+    public void add(Geofence fence) {
+        int south = cell(fence.getSouth());
+        int north = cell(fence.getNorth());
+        int west = cell(fence.getWest());
+        int east = cell(fence.getEast());
+
+        if ((long) (north - south + 1) * (east - west + 1) > mMaxCells) {
+            mLarge.add(fence);
+            return;
+        }
+
+        for (int row = south; row <= north; row++) {
+            for (int col = west; col <= east; col++) {
+                Long key = key(row, col);
+                List<Geofence> cell = mCells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<Geofence>(2);
+                    mCells.put(key, cell);
+                }
+                cell.add(fence);
+            }
+        }
+    }
+
+    public void remove(Geofence fence) {
+        if (mLarge.remove(fence)) {
+            return;
+        }
+
+        for (int row = cell(fence.getSouth()); row <= cell(fence.getNorth()); row++) {
+            for (int col = cell(fence.getWest()); col <= cell(fence.getEast()); col++) {
+                Long key = key(row, col);
+                List<Geofence> cell = mCells.get(key);
+                if (cell != null) {
+                    cell.remove(fence);
+                    if (cell.isEmpty()) {
+                        mCells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        mCells.clear();
+        mLarge.clear();
+    }
+
+    /**
+     * Find the zones which may contain a point.
+     *
+     * @param candidates Cleared and filled with the zones
+     */
+    public void query(double latitude, double longitude, List<Geofence> candidates) {
+        candidates.clear();
+        List<Geofence> cell = mCells.get(key(cell(latitude), cell(longitude)));
+        if (cell != null) {
+            candidates.addAll(cell);
+        }
+        candidates.addAll(mLarge);
+    }
+
+    private int cell(double degrees) {
+        return (int) Math.floor(degrees / mCellSize);
+    }
+
+    private static Long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
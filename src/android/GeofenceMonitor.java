@@ -0,0 +1,120 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests every fix against the monitored zones and reports the enter, exit
+ * and dwell transitions.
+ * <p/>
+ * Only the zones near the fix and the zones the device is in are tested,
+ * so the cost of a fix does not depend on the number of zones. Must only be
+ * used on the looper thread of the listener.
+ */
+public class GeofenceMonitor {
+
+    public static final String ENTER = "enter";
+    public static final String EXIT = "exit";
+    public static final String DWELL = "dwell";
+
+    private final CordovaLocationServices mOwner;
+    private final GeofenceIndex mIndex = new GeofenceIndex(
+            LocationUtils.GEOFENCE_CELL_SIZE, LocationUtils.GEOFENCE_MAX_CELLS);
+    private final Map<String, Geofence> mFences = new HashMap<String, Geofence>();
+    private final List<Geofence> mInside = new ArrayList<Geofence>();
+    private final List<Geofence> mCandidates = new ArrayList<Geofence>();
+    private volatile int mSize = 0;
+
+    public GeofenceMonitor(CordovaLocationServices owner) {
+        mOwner = owner;
+    }
+
+    /**
+     * @return The number of monitored zones, safe to call from any thread
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Monitor a zone, replacing the zone with the same id.
+     */
+    public void add(Geofence fence) {
+        remove(fence.getId());
+        mFences.put(fence.getId(), fence);
+        mIndex.add(fence);
+        mSize = mFences.size();
+    }
+
+    public void remove(String id) {
+        Geofence fence = mFences.remove(id);
+        if (fence != null) {
+            mIndex.remove(fence);
+            mInside.remove(fence);
+        }
+        mSize = mFences.size();
+    }
+
+    public void clear() {
+        mFences.clear();
+        mIndex.clear();
+        mInside.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Test a new fix and send the transitions it causes.
+     */
+    public void evaluate(LocationPayload payload) {
+        Location loc = payload.getLocation();
+        double latitude = loc.getLatitude();
+        double longitude = loc.getLongitude();
+        long time = loc.getTime();
+
+        // Zones the device was already in are handled below
+        mIndex.query(latitude, longitude, mCandidates);
+        for (Geofence fence : mCandidates) {
+            if (!fence.isInside() && fence.contains(latitude, longitude)) {
+                fence.enter(time);
+                mInside.add(fence);
+                mOwner.win(fence, ENTER, payload);
+            }
+        }
+        mCandidates.clear();
+
+        Iterator<Geofence> it = mInside.iterator();
+        while (it.hasNext()) {
+            Geofence fence = it.next();
+            if (!fence.contains(latitude, longitude)) {
+                fence.exit();
+                it.remove();
+                mOwner.win(fence, EXIT, payload);
+            } else if (fence.dwell(time)) {
+                mOwner.win(fence, DWELL, payload);
+            }
+        }
+    }
+}
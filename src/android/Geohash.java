@@ -0,0 +1,76 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+/**
+ * Geohash encoding, the key of the reverse geocoding cache. Two points
+ * sharing a prefix lie in the same cell, about 150 m wide with 7 characters.
+ */
+public final class Geohash {
+
+    // The longest geohash, about 4 cm wide
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    /**
+     * @param precision The number of characters, from 1 to MAX_PRECISION
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("The geohash precision must be between 1 and "
+                    + MAX_PRECISION);
+        }
+
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        // Bits alternate between longitude and latitude, longitude first
+        boolean even = true;
+        for (int i = 0; i < precision; i++) {
+            int c = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                c <<= 1;
+                if (even) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (longitude >= mid) {
+                        c |= 1;
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitude >= mid) {
+                        c |= 1;
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                even = !even;
+            }
+            hash[i] = BASE32[c];
+        }
+        return new String(hash);
+    }
+}
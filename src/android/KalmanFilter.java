@@ -0,0 +1,231 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+/**
+ * Constant-velocity Kalman filter smoothing the fixes of a watch, with a
+ * gate rejecting impossible jumps.
+ * <p/>
+ * Positions are projected in meters on a plane tangent to an origin near
+ * the device. Each axis is filtered independently with a position and a
+ * velocity, the accuracy of each fix is used as the measurement noise. The
+ * state is kept in primitive fields and the smoothed fix is written to the
+ * same object every time, so filtering does not allocate.
+ */
+public class KalmanFilter {
+
+    // Move the origin when the device is this far from it, in meters
+    private static final double ORIGIN_RANGE = 10000;
+    // Start again after this many rejected fixes in a row
+    private static final int MAX_REJECTED = 3;
+
+    private final double mProcessNoise;
+    private final double mMaxSpeed;
+    private final double mMaxAcceleration;
+    private final Location mSmoothed = new Location("");
+
+    private boolean mInitialized = false;
+    private int mRejected = 0;
+    private long mTime;
+    private double mOriginLatitude;
+    private double mOriginLongitude;
+    private double mCos;
+
+    // Position, velocity and covariance of each axis
+    private double mX, mVX, mX00, mX01, mX11;
+    private double mY, mVY, mY00, mY01, mY11;
+
+    /**
+     * @param processNoise    The standard deviation of the acceleration in
+     *                        m/s^2, how quickly the device can change course
+     * @param maxSpeed        Fixes implying a faster move are rejected, in m/s,
+     *                        or 0 to disable
+     * @param maxAcceleration Fixes implying a stronger acceleration are
+     *                        rejected, in m/s^2, or 0 to disable
+     */
+    public KalmanFilter(double processNoise, double maxSpeed,
+                        double maxAcceleration) {
+        mProcessNoise = processNoise * processNoise;
+        mMaxSpeed = maxSpeed;
+        mMaxAcceleration = maxAcceleration;
+    }
+
+    /**
+     * Filter a new fix.
+     *
+     * @param loc The raw fix
+     * @return The smoothed fix, overwritten by the next call, or null if the
+     * fix was rejected
+     */
+    public Location filter(Location loc) {
+        double variance = Math.max(loc.getAccuracy(), 1);
+        variance *= variance;
+
+        if (!mInitialized || mRejected >= MAX_REJECTED) {
+            reset(loc, variance);
+            return smoothed(loc);
+        }
+
+        double dt = Math.max(0, (loc.getTime() - mTime) / 1000.0);
+        double x = toX(loc.getLongitude());
+        double y = toY(loc.getLatitude());
+
+        if (isOutlier(x, y, dt, Math.sqrt(variance))) {
+            mRejected++;
+            return null;
+        }
+        mRejected = 0;
+        mTime = loc.getTime();
+
+        predict(dt);
+        update(x, y, variance);
+
+        if (Math.abs(mX) > ORIGIN_RANGE || Math.abs(mY) > ORIGIN_RANGE) {
+            moveOrigin();
+        }
+
+        return smoothed(loc);
+    }
+
+    private boolean isOutlier(double x, double y, double dt, double accuracy) {
+        if (dt <= 0) {
+            return false;
+        }
+
+        double dx = x - mX;
+        double dy = y - mY;
+        // Jitter within the accuracy of the fix is never an impossible move
+        double distance = Math.max(0, Math.sqrt(dx * dx + dy * dy) - accuracy);
+        double speed = distance / dt;
+
+        if (mMaxSpeed > 0 && speed > mMaxSpeed) {
+            return true;
+        }
+
+        if (mMaxAcceleration > 0) {
+            double ax = (dx / dt - mVX) / dt;
+            double ay = (dy / dt - mVY) / dt;
+            return distance > 0 && Math.sqrt(ax * ax + ay * ay) > mMaxAcceleration;
+        }
+
+        return false;
+    }
+
+    private void reset(Location loc, double variance) {
+        mInitialized = true;
+        mRejected = 0;
+        mTime = loc.getTime();
+        mOriginLatitude = loc.getLatitude();
+        mOriginLongitude = loc.getLongitude();
+        mCos = Math.cos(Math.toRadians(mOriginLatitude));
+
+        mX = 0;
+        mY = 0;
+        mVX = 0;
+        mVY = 0;
+        mX00 = variance;
+        mY00 = variance;
+        mX01 = 0;
+        mY01 = 0;
+        // Unknown speed, allow a few tens of m/s
+        mX11 = 1000;
+        mY11 = 1000;
+    }
+
+    private void predict(double dt) {
+        double dt2 = dt * dt;
+        double q00 = mProcessNoise * dt2 * dt2 / 4;
+        double q01 = mProcessNoise * dt2 * dt / 2;
+        double q11 = mProcessNoise * dt2;
+
+        mX += mVX * dt;
+        mX00 += dt * (2 * mX01 + dt * mX11) + q00;
+        mX01 += dt * mX11 + q01;
+        mX11 += q11;
+
+        mY += mVY * dt;
+        mY00 += dt * (2 * mY01 + dt * mY11) + q00;
+        mY01 += dt * mY11 + q01;
+        mY11 += q11;
+    }
+
+    private void update(double x, double y, double variance) {
+        double s = mX00 + variance;
+        double k0 = mX00 / s;
+        double k1 = mX01 / s;
+        double innovation = x - mX;
+        mX += k0 * innovation;
+        mVX += k1 * innovation;
+        mX11 -= k1 * mX01;
+        mX01 *= 1 - k0;
+        mX00 *= 1 - k0;
+
+        s = mY00 + variance;
+        k0 = mY00 / s;
+        k1 = mY01 / s;
+        innovation = y - mY;
+        mY += k0 * innovation;
+        mVY += k1 * innovation;
+        mY11 -= k1 * mY01;
+        mY01 *= 1 - k0;
+        mY00 *= 1 - k0;
+    }
+
+    private void moveOrigin() {
+        mOriginLatitude = toLatitude(mY);
+        mOriginLongitude = toLongitude(mX);
+        mCos = Math.cos(Math.toRadians(mOriginLatitude));
+        mX = 0;
+        mY = 0;
+    }
+
+    private Location smoothed(Location loc) {
+        Location out = mSmoothed;
+        out.set(loc);
+        out.setLatitude(toLatitude(mY));
+        out.setLongitude(toLongitude(mX));
+        out.setAccuracy((float) Math.sqrt(Math.max(mX00, mY00)));
+
+        double speed = Math.sqrt(mVX * mVX + mVY * mVY);
+        out.setSpeed((float) speed);
+        if (speed > 0) {
+            double bearing = Math.toDegrees(Math.atan2(mVX, mVY));
+            out.setBearing((float) (bearing < 0 ? bearing + 360 : bearing));
+        }
+        return out;
+    }
+
+    private double toX(double longitude) {
+        return LocationUtils.metersEast(longitude, mOriginLongitude, mCos);
+    }
+
+    private double toY(double latitude) {
+        return LocationUtils.metersNorth(latitude, mOriginLatitude);
+    }
+
+    private double toLongitude(double x) {
+        return mOriginLongitude + Math.toDegrees(x / (LocationUtils.EARTH_RADIUS * mCos));
+    }
+
+    private double toLatitude(double y) {
+        return mOriginLatitude + Math.toDegrees(y / LocationUtils.EARTH_RADIUS);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations with fixed buckets, safe to record from any thread
+ * without locking.
+ * <p/>
+ * Bucket i counts the values up to its bound, the last bucket counts the
+ * values above every bound. Quantiles are reported as the bound of the
+ * bucket they fall in, or as the maximum if it is lower.
+ */
+public class LatencyHistogram {
+
+    private final long[] mBounds;
+    private final AtomicLongArray mCounts;
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * @param first   The bound of the first bucket
+     * @param buckets The number of bounded buckets, each bound is twice the
+     *                previous one
+     */
+    public LatencyHistogram(long first, int buckets) {
+        mBounds = new long[buckets];
+        for (int i = 0; i < buckets; i++) {
+            mBounds[i] = first << i;
+        }
+        mCounts = new AtomicLongArray(buckets + 1);
+    }
+
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        int i = 0;
+        while (i < mBounds.length && value > mBounds[i]) {
+            i++;
+        }
+        mCounts.incrementAndGet(i);
+        mSum.addAndGet(value);
+
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    /**
+     * A snapshot of the histogram. Values recorded while it is taken may be
+     * partly counted.
+     */
+    public JSONObject toJSON() throws JSONException {
+        long[] counts = new long[mCounts.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mCounts.get(i);
+            count += counts[i];
+        }
+
+        JSONArray bounds = new JSONArray();
+        JSONArray buckets = new JSONArray();
+        for (int i = 0; i < counts.length; i++) {
+            if (i < mBounds.length) {
+                bounds.put(mBounds[i]);
+            }
+            buckets.put(counts[i]);
+        }
+
+        JSONObject o = new JSONObject();
+        o.put("count", count);
+        o.put("sum", mSum.get());
+        o.put("max", mMax.get());
+        o.put("p50", quantile(counts, count, 0.5));
+        o.put("p90", quantile(counts, count, 0.9));
+        o.put("p99", quantile(counts, count, 0.99));
+        o.put("bounds", bounds);
+        o.put("counts", buckets);
+        return o;
+    }
+
+    private long quantile(long[] counts, long count, double q) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int i = 0; i < mBounds.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(mBounds[i], mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+}
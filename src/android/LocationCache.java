@@ -0,0 +1,79 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+/**
+ * The most recent fixes received by the plugin, used to answer
+ * getCurrentPosition without asking Google Play Services.
+ */
+public class LocationCache {
+
+    private final Location[] mLocations;
+    private int mNewest = -1;
+    private int mSize = 0;
+
+    public LocationCache(int capacity) {
+        mLocations = new Location[capacity];
+    }
+
+    public synchronized void put(Location loc) {
+        if (mSize > 0 && loc.getTime() < mLocations[mNewest].getTime()) {
+            // Keep the cache ordered, fixes are rarely delivered out of order
+            return;
+        }
+        mNewest = (mNewest + 1) % mLocations.length;
+        mLocations[mNewest] = loc;
+        mSize = Math.min(mSize + 1, mLocations.length);
+    }
+
+    /**
+     * Find the most recent fix matching the given constraints.
+     *
+     * @param maximumAge      The maximum age of the fix in milliseconds
+     * @param maximumAccuracy The maximum accuracy radius in meters, or 0 to
+     *                        accept any accuracy
+     * @return The matching fix, or null
+     */
+    public synchronized Location get(long maximumAge, float maximumAccuracy) {
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < mSize; i++) {
+            Location loc = mLocations[(mNewest - i + mLocations.length) % mLocations.length];
+            if (now - loc.getTime() > maximumAge) {
+                // Older fixes will not match either
+                return null;
+            }
+            if (maximumAccuracy <= 0 || loc.getAccuracy() <= maximumAccuracy) {
+                return loc;
+            }
+        }
+
+        return null;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < mLocations.length; i++) {
+            mLocations[i] = null;
+        }
+        mNewest = -1;
+        mSize = 0;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationResult;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The LocationCallback of each listener of the fused provider. Reusing the
+ * callback of a listener replaces the request previously registered with it.
+ */
+public class LocationCallbacks {
+
+    private final Map<LocationSource.Listener, LocationCallback> mCallbacks =
+            new HashMap<LocationSource.Listener, LocationCallback>();
+
+    /**
+     * @return The callback of the listener, created on the first call
+     */
+    public LocationCallback get(final LocationSource.Listener listener) {
+        synchronized (mCallbacks) {
+            LocationCallback callback = mCallbacks.get(listener);
+            if (callback == null) {
+                // Receives the fixes, several at once when they are batched
+                callback = new LocationCallback() {
+                    @Override
+                    public void onLocationResult(LocationResult result) {
+                        onResult(result);
+                        listener.onLocationsChanged(result.getLocations());
+                    }
+                };
+                mCallbacks.put(listener, callback);
+            }
+            return callback;
+        }
+    }
+
+    /**
+     * @return The callback of the listener, or null if it has none
+     */
+    public LocationCallback remove(LocationSource.Listener listener) {
+        synchronized (mCallbacks) {
+            return mCallbacks.remove(listener);
+        }
+    }
+
+    /**
+     * Called with every result, before the listener.
+     */
+    protected void onResult(LocationResult result) {
+    }
+}
@@ -0,0 +1,91 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Compact binary encoding of locations, sent to JavaScript as an ArrayBuffer.
+ * <p/>
+ * The buffer holds little-endian doubles in columns: every latitude, then
+ * every longitude, then altitude, accuracy, heading, velocity and timestamp.
+ * A single fix is a batch of one. Missing values are NaN. JavaScript reads
+ * it with a Float64Array, without any JSON parsing.
+ */
+public final class LocationCodec {
+
+    public static final int COLUMNS = 7;
+
+    private static final int BYTES_PER_VALUE = 8;
+
+    private LocationCodec() {
+    }
+
+    public static byte[] encode(Location loc) {
+        ByteBuffer buffer = allocate(1);
+        put(buffer, loc, 0, 1);
+        return buffer.array();
+    }
+
+    public static byte[] encode(List<Location> locs) {
+        int count = locs.size();
+        ByteBuffer buffer = allocate(count);
+        for (int i = 0; i < count; i++) {
+            put(buffer, locs.get(i), i, count);
+        }
+        return buffer.array();
+    }
+
+    static ByteBuffer allocate(int count) {
+        return ByteBuffer.allocate(count * COLUMNS * BYTES_PER_VALUE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void put(ByteBuffer buffer, Location loc, int index,
+                            int count) {
+        put(buffer, index, count, loc.getLatitude(), loc.getLongitude(),
+                loc.hasAltitude() ? loc.getAltitude() : Double.NaN,
+                loc.getAccuracy(),
+                loc.hasBearing() && loc.hasSpeed() ? loc.getBearing() : Double.NaN,
+                loc.getSpeed(), loc.getTime());
+    }
+
+    /**
+     * Write the values of the fix at the given index of a batch, missing
+     * values being NaN.
+     */
+    static void put(ByteBuffer buffer, int index, int count, double latitude,
+                    double longitude, double altitude, double accuracy,
+                    double heading, double speed, long time) {
+        int column = count * BYTES_PER_VALUE;
+        int offset = index * BYTES_PER_VALUE;
+
+        buffer.putDouble(offset, latitude);
+        buffer.putDouble(offset + column, longitude);
+        buffer.putDouble(offset + 2 * column, altitude);
+        buffer.putDouble(offset + 3 * column, accuracy);
+        buffer.putDouble(offset + 4 * column, heading);
+        buffer.putDouble(offset + 5 * column, speed);
+        buffer.putDouble(offset + 6 * column, time);
+    }
+}
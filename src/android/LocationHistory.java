@@ -0,0 +1,114 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The recent fixes received by the plugin, returned by getHistory.
+ * <p/>
+ * The fixes are kept in a ring of parallel primitive arrays, so recording a
+ * fix allocates nothing and the history costs the same memory whatever its
+ * age. Missing altitudes and headings are stored as NaN.
+ */
+public class LocationHistory {
+
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+    private final double[] mAltitudes;
+    private final float[] mAccuracies;
+    private final float[] mSpeeds;
+    private final float[] mBearings;
+    private final long[] mTimes;
+    private int mNewest = -1;
+    private int mSize = 0;
+
+    public LocationHistory(int capacity) {
+        mLatitudes = new double[capacity];
+        mLongitudes = new double[capacity];
+        mAltitudes = new double[capacity];
+        mAccuracies = new float[capacity];
+        mSpeeds = new float[capacity];
+        mBearings = new float[capacity];
+        mTimes = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return mTimes.length;
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public synchronized void put(Location loc) {
+        if (mSize > 0 && loc.getTime() < mTimes[mNewest]) {
+            // The ring is read back in time order, a late fix is dropped
+            return;
+        }
+        int i = (mNewest + 1) % mTimes.length;
+        mLatitudes[i] = loc.getLatitude();
+        mLongitudes[i] = loc.getLongitude();
+        mAltitudes[i] = loc.hasAltitude() ? loc.getAltitude() : Double.NaN;
+        mAccuracies[i] = loc.getAccuracy();
+        mSpeeds[i] = loc.getSpeed();
+        mBearings[i] = loc.hasBearing() && loc.hasSpeed() ? loc.getBearing() : Float.NaN;
+        mTimes[i] = loc.getTime();
+        mNewest = i;
+        mSize = Math.min(mSize + 1, mTimes.length);
+    }
+
+    /**
+     * Get the most recent fixes in the LocationCodec format, oldest first.
+     *
+     * @param since    Only the fixes strictly newer than this timestamp are
+     *                 returned
+     * @param maxCount The maximum number of fixes returned, the newest ones
+     */
+    public synchronized byte[] query(long since, int maxCount) {
+        int count = 0;
+        while (count < mSize && count < maxCount && mTimes[index(count)] > since) {
+            count++;
+        }
+
+        ByteBuffer buffer = LocationCodec.allocate(count);
+        for (int j = 0; j < count; j++) {
+            // The oldest of the returned fixes comes first
+            int i = index(count - 1 - j);
+            LocationCodec.put(buffer, j, count, mLatitudes[i], mLongitudes[i],
+                    mAltitudes[i], mAccuracies[i], mBearings[i], mSpeeds[i], mTimes[i]);
+        }
+        return buffer.array();
+    }
+
+    public synchronized void clear() {
+        mNewest = -1;
+        mSize = 0;
+    }
+
+    /**
+     * @return The index in the arrays of the fix received age fixes before
+     * the newest one
+     */
+    private int index(int age) {
+        return (mNewest - age + mTimes.length) % mTimes.length;
+    }
+}
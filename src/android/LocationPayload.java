@@ -0,0 +1,129 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.apache.cordova.PluginResult;
+import org.json.JSONObject;
+
+/**
+ * A location fix encoded once and shared by every subscriber.
+ * <p/>
+ * The JSON representation is built on first use and at most two plugin
+ * results are created from it: one for one-shot callbacks and one for
+ * watches. Both are never modified once built, so they can be sent to any
+ * number of callback contexts. Batched watches share the JSON object itself.
+ * Watches using the compact format share a binary result built by
+ * {@link LocationCodec}.
+ */
+public class LocationPayload {
+
+    private final Location mLocation;
+    private final CordovaLocationServices mOwner;
+    private JSONObject mJSON = null;
+    private PluginResult mOnceResult = null;
+    private PluginResult mKeepResult = null;
+    private PluginResult mCompactResult = null;
+
+    public LocationPayload(Location location, CordovaLocationServices owner) {
+        mLocation = location;
+        mOwner = owner;
+    }
+
+    public Location getLocation() {
+        return mLocation;
+    }
+
+    /**
+     * Get the plugin result for this fix.
+     *
+     * @param keepCallback Whether the callback should be kept after delivery
+     * @return A shared plugin result
+     */
+    public PluginResult getResult(boolean keepCallback) {
+        if (keepCallback) {
+            if (mKeepResult == null) {
+                mKeepResult = newResult(true);
+            } else {
+                reused();
+            }
+            return mKeepResult;
+        }
+
+        if (mOnceResult == null) {
+            mOnceResult = newResult(false);
+        } else {
+            reused();
+        }
+        return mOnceResult;
+    }
+
+    /**
+     * Get the compact plugin result for this fix, for watches.
+     *
+     * @return A shared plugin result holding an ArrayBuffer
+     */
+    public PluginResult getCompactResult() {
+        if (mCompactResult == null) {
+            mCompactResult = new PluginResult(PluginResult.Status.OK,
+                    LocationCodec.encode(mLocation));
+            mCompactResult.setKeepCallback(true);
+        } else {
+            reused();
+        }
+        return mCompactResult;
+    }
+
+    /**
+     * Get the JSON representation of this fix, to be added to a batch.
+     *
+     * @return A shared JSON object, it must not be modified
+     */
+    public JSONObject getJSON() {
+        return json();
+    }
+
+    /**
+     * @return The JSON representation, built by the first of the results
+     * and batches that need it
+     */
+    private JSONObject json() {
+        if (mJSON == null) {
+            mJSON = mOwner.returnLocationJSON(mLocation);
+        } else {
+            reused();
+        }
+        return mJSON;
+    }
+
+    private PluginResult newResult(boolean keepCallback) {
+        PluginResult result = new PluginResult(PluginResult.Status.OK, json());
+        result.setKeepCallback(keepCallback);
+        return result;
+    }
+
+    /**
+     * Count a consumer served without encoding the fix again. The payloads
+     * held for a watch are counted when they are finally sent.
+     */
+    private void reused() {
+        mOwner.getStats().savedEncodings.incrementAndGet();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import com.google.android.gms.location.LocationRequest;
+
+import java.util.Collection;
+
+/**
+ * Merges the parameters of every watch into the single location request
+ * used to subscribe to the fused provider.
+ * <p/>
+ * The merged request uses the highest priority and the tightest intervals
+ * asked for. Pending one-shot requests count as a watch with the default
+ * parameters. Fixes are only batched by the provider when every subscriber
+ * accepts batches, and only filtered by displacement when every subscriber
+ * sets a minimum distance.
+ */
+public class LocationRequestArbiter {
+
+    private LocationRequest mRequest = null;
+
+    /**
+     * @return The current merged request
+     */
+    public LocationRequest getRequest() {
+        if (mRequest == null) {
+            mRequest = createRequest(LocationRequest.PRIORITY_HIGH_ACCURACY,
+                    LocationUtils.UPDATE_INTERVAL_IN_MILLISECONDS,
+                    LocationUtils.FAST_INTERVAL_CEILING_IN_MILLISECONDS, 0, 0);
+        }
+        return mRequest;
+    }
+
+    /**
+     * Merge the parameters of the given watches.
+     *
+     * @param watches The registered watches
+     * @param oneShot Whether one-shot requests are pending
+     * @return true if the merged request changed
+     */
+    public boolean update(Collection<LocationWatch> watches, boolean oneShot) {
+        // PRIORITY_HIGH_ACCURACY has the lowest value of all priorities
+        int priority = Integer.MAX_VALUE;
+        long interval = Long.MAX_VALUE;
+        long fastInterval = Long.MAX_VALUE;
+        long maxWaitTime = Long.MAX_VALUE;
+        float displacement = Float.MAX_VALUE;
+
+        if (oneShot || watches.isEmpty()) {
+            priority = LocationRequest.PRIORITY_HIGH_ACCURACY;
+            interval = LocationUtils.UPDATE_INTERVAL_IN_MILLISECONDS;
+            fastInterval = LocationUtils.FAST_INTERVAL_CEILING_IN_MILLISECONDS;
+            maxWaitTime = 0;
+            displacement = 0;
+        }
+
+        for (LocationWatch watch : watches) {
+            priority = Math.min(priority, watch.getPriority());
+            interval = Math.min(interval, watch.getInterval());
+            fastInterval = Math.min(fastInterval, watch.getFastInterval());
+            maxWaitTime = Math.min(maxWaitTime, watch.getMaxWaitTime());
+            displacement = Math.min(displacement, watch.getMinDistance());
+        }
+
+        LocationRequest current = getRequest();
+        if (current.getPriority() == priority
+                && current.getInterval() == interval
+                && current.getFastestInterval() == fastInterval
+                && current.getMaxWaitTime() == maxWaitTime
+                && current.getSmallestDisplacement() == displacement) {
+            return false;
+        }
+
+        mRequest = createRequest(priority, interval, fastInterval, maxWaitTime,
+                displacement);
+        return true;
+    }
+
+    private static LocationRequest createRequest(int priority, long interval,
+                                                 long fastInterval,
+                                                 long maxWaitTime,
+                                                 float displacement) {
+        LocationRequest request = LocationRequest.create();
+        request.setPriority(priority);
+        request.setInterval(interval);
+        request.setFastestInterval(fastInterval);
+        request.setMaxWaitTime(maxWaitTime);
+        request.setSmallestDisplacement(displacement);
+        return request;
+    }
+}
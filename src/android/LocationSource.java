@@ -0,0 +1,114 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.os.Looper;
+
+import com.google.android.gms.location.LocationListener;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.tasks.CancellationToken;
+
+import java.util.List;
+
+/**
+ * Where the plugin gets its fixes from: the fused provider of Google Play
+ * services, the providers of the platform, or a recorded trace.
+ */
+public interface LocationSource {
+
+    /**
+     * Receives the fixes of a source, on the looper given when subscribing.
+     */
+    interface Listener extends LocationListener {
+
+        /**
+         * Several fixes at once, when the source batches them.
+         *
+         * @param locations The fixes, oldest first
+         */
+        void onLocationsChanged(List<Location> locations);
+    }
+
+    /**
+     * Receives the result of a single fix request, on the looper given with
+     * the request.
+     */
+    interface SingleFixCallback {
+
+        /**
+         * @param location The fix, or null if the source could not get one
+         *                 without a subscription
+         */
+        void onSingleFix(Location location);
+    }
+
+    /**
+     * @return true if the source can be used, the user may be told why it
+     * cannot
+     */
+    boolean isAvailable();
+
+    /**
+     * Start connecting to the source, does nothing if it is connected or
+     * connecting.
+     */
+    void connect();
+
+    void disconnect();
+
+    boolean isConnected();
+
+    /**
+     * @return The most recent fix of the source, or null
+     */
+    Location getLastLocation();
+
+    /**
+     * Run a task once the last known location being fetched arrives, without
+     * blocking the caller.
+     *
+     * @return false if getLastLocation already has everything the source
+     * knows, the task is not run
+     */
+    boolean awaitLastLocation(Runnable task, Looper looper);
+
+    /**
+     * Subscribe to the fixes, or change the request of the listener if it
+     * is already subscribed.
+     */
+    void requestLocationUpdates(LocationRequest request, Listener listener,
+                                Looper looper);
+
+    void removeLocationUpdates(Listener listener);
+
+    /**
+     * Get one fix without subscribing to updates. The callback is not called
+     * once the request is cancelled.
+     *
+     * @param priority        One of the LocationRequest priorities
+     * @param maximumAccuracy The accuracy the fix should have in meters, 0
+     *                        for any fix. A source may return a less
+     *                        accurate fix, the caller checks it.
+     * @return false if the source cannot get a single fix, the caller must
+     * subscribe instead
+     */
+    boolean getCurrentLocation(int priority, float maximumAccuracy, CancellationToken token,
+                               SingleFixCallback callback, Looper looper);
+}
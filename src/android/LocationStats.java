@@ -0,0 +1,159 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms of the plugin, returned by getStats.
+ * <p/>
+ * Everything is recorded with atomic operations, without locking, so the
+ * statistics can stay enabled in production.
+ */
+public class LocationStats {
+
+    // Fixes received from the provider
+    public final AtomicLong fixes = new AtomicLong();
+    // Results sent to JavaScript, errors included
+    public final AtomicLong results = new AtomicLong();
+    public final AtomicLong errors = new AtomicLong();
+    public final AtomicLong timeouts = new AtomicLong();
+    // getCurrentPosition answered from the cache
+    public final AtomicLong cacheHits = new AtomicLong();
+    // Location encodings avoided by sharing one payload
+    public final AtomicLong savedEncodings = new AtomicLong();
+    // Location update subscriptions sent to the provider
+    public final AtomicLong subscriptions = new AtomicLong();
+    // Single fix requests sent for one-shot requests
+    public final AtomicLong singleFixes = new AtomicLong();
+    public final AtomicLong connects = new AtomicLong();
+    public final AtomicLong suspends = new AtomicLong();
+    public final AtomicLong connectionFailures = new AtomicLong();
+    // Fixes buffered while paused and sent at once on resume
+    public final AtomicLong buffered = new AtomicLong();
+    // Fixes dropped from a full buffer
+    public final AtomicLong dropped = new AtomicLong();
+    // Fixes replaced or dropped while JavaScript was behind
+    public final AtomicLong coalesced = new AtomicLong();
+    public final AtomicLong acks = new AtomicLong();
+    // reverseGeocode answered from the cache, sharing the call of another
+    // lookup of the same cell, and calls to the Geocoder
+    public final AtomicLong geocodeHits = new AtomicLong();
+    public final AtomicLong geocodeShared = new AtomicLong();
+    public final AtomicLong geocodeCalls = new AtomicLong();
+
+    // From addWatch to the first fix delivered to the watch, in milliseconds
+    public final LatencyHistogram firstFix = new LatencyHistogram(16, 12);
+    // Age of the fixes when they are delivered, in milliseconds
+    public final LatencyHistogram fixAge = new LatencyHistogram(16, 12);
+    // Time spent building the JSON of a fix, in microseconds
+    public final LatencyHistogram encode = new LatencyHistogram(4, 12);
+    // From connect() to onConnected, in milliseconds
+    public final LatencyHistogram connect = new LatencyHistogram(16, 12);
+    // From onConnectionSuspended to onConnected, in milliseconds
+    public final LatencyHistogram suspend = new LatencyHistogram(16, 12);
+    // From sending a result to its acknowledgement by JavaScript, in
+    // milliseconds
+    public final LatencyHistogram ack = new LatencyHistogram(4, 14);
+    // Duration of the Geocoder calls, in milliseconds
+    public final LatencyHistogram geocode = new LatencyHistogram(16, 12);
+
+    private final AtomicLong mSince = new AtomicLong(System.currentTimeMillis());
+
+    public void reset() {
+        fixes.set(0);
+        results.set(0);
+        errors.set(0);
+        timeouts.set(0);
+        cacheHits.set(0);
+        savedEncodings.set(0);
+        subscriptions.set(0);
+        singleFixes.set(0);
+        connects.set(0);
+        suspends.set(0);
+        connectionFailures.set(0);
+        buffered.set(0);
+        dropped.set(0);
+        coalesced.set(0);
+        acks.set(0);
+        geocodeHits.set(0);
+        geocodeShared.set(0);
+        geocodeCalls.set(0);
+
+        firstFix.reset();
+        fixAge.reset();
+        encode.reset();
+        connect.reset();
+        suspend.reset();
+        ack.reset();
+        geocode.reset();
+
+        mSince.set(System.currentTimeMillis());
+    }
+
+    /**
+     * @param watches The running watches, whose result counts are added
+     */
+    public JSONObject toJSON(Collection<LocationWatch> watches) throws JSONException {
+        JSONObject counters = new JSONObject();
+        counters.put("fixes", fixes.get());
+        counters.put("results", results.get());
+        counters.put("errors", errors.get());
+        counters.put("timeouts", timeouts.get());
+        counters.put("cacheHits", cacheHits.get());
+        counters.put("savedEncodings", savedEncodings.get());
+        counters.put("subscriptions", subscriptions.get());
+        counters.put("singleFixes", singleFixes.get());
+        counters.put("connects", connects.get());
+        counters.put("suspends", suspends.get());
+        counters.put("connectionFailures", connectionFailures.get());
+        counters.put("buffered", buffered.get());
+        counters.put("dropped", dropped.get());
+        counters.put("coalesced", coalesced.get());
+        counters.put("acks", acks.get());
+        counters.put("geocodeHits", geocodeHits.get());
+        counters.put("geocodeShared", geocodeShared.get());
+        counters.put("geocodeCalls", geocodeCalls.get());
+
+        JSONObject histograms = new JSONObject();
+        histograms.put("firstFixMillis", firstFix.toJSON());
+        histograms.put("fixAgeMillis", fixAge.toJSON());
+        histograms.put("encodeMicros", encode.toJSON());
+        histograms.put("connectMillis", connect.toJSON());
+        histograms.put("suspendMillis", suspend.toJSON());
+        histograms.put("ackMillis", ack.toJSON());
+        histograms.put("geocodeMillis", geocode.toJSON());
+
+        JSONObject perWatch = new JSONObject();
+        for (LocationWatch watch : watches) {
+            perWatch.put(watch.getId(), watch.getResults());
+        }
+
+        JSONObject o = new JSONObject();
+        o.put("since", mSince.get());
+        o.put("counters", counters);
+        o.put("histograms", histograms);
+        o.put("watches", perWatch);
+        return o;
+    }
+}
@@ -30,6 +30,49 @@ public final class LocationUtils {
      */
     public final static int CONNECTION_FAILURE_RESOLUTION_REQUEST = 9000;
 
+    // Preference choosing when to connect to Google Play services: on the
+    // first request (default), when the plugin is initialized, or when the
+    // page is loaded
+    public static final String CONNECT_PREFERENCE = "LocationServicesConnect";
+    public static final String CONNECT_ON_INITIALIZE = "initialize";
+    public static final String CONNECT_ON_PAGE_LOAD = "pageload";
+
+    // Preference choosing where the fixes come from: the fused provider
+    // through GoogleApiClient (default) or through the connectionless
+    // client, the providers of the platform, or the platform only when
+    // Google Play services is not available
+    public static final String ENGINE_PREFERENCE = "LocationServicesEngine";
+    public static final String ENGINE_CLIENT = "client";
+    public static final String ENGINE_PLATFORM = "platform";
+    public static final String ENGINE_AUTO = "auto";
+
+    // Time after which the platform engine uses a less accurate provider
+    // again once the more accurate one stops sending fixes, in milliseconds
+    public static final long PROVIDER_SWITCH_DELAY = 10000;
+
+    // Fixes buffered for a watch while the app is paused or until its batch
+    // is sent, the oldest are dropped beyond
+    public static final int BATCH_BUFFER_SIZE = 1000;
+
+    // Default number of fixes waiting for an acknowledgement with the queue
+    // delivery
+    public static final int DELIVERY_QUEUE_SIZE = 10;
+    // Time after which a result not acknowledged by JavaScript is
+    // considered lost, in milliseconds
+    public static final long ACK_TIMEOUT = 10000;
+
+    // Preferences of the notification shown while a background watch keeps
+    // tracking with the app paused
+    public static final String NOTIFICATION_TITLE_PREFERENCE = "LocationServicesNotificationTitle";
+    public static final String NOTIFICATION_TEXT_PREFERENCE = "LocationServicesNotificationText";
+
+    // Preferences replaying a GPX, NMEA or CSV trace instead of the fused
+    // provider: the path of the trace, how many times faster than real time
+    // and whether it starts again once it ends
+    public static final String REPLAY_PREFERENCE = "LocationServicesReplay";
+    public static final String REPLAY_SPEED_PREFERENCE = "LocationServicesReplaySpeed";
+    public static final String REPLAY_LOOP_PREFERENCE = "LocationServicesReplayLoop";
+
     /*
      * Constants for location update parameters
      */
@@ -46,4 +89,80 @@ public final class LocationUtils {
     // A fast ceiling of update intervals, used when the app is visible
     public static final long FAST_INTERVAL_CEILING_IN_MILLISECONDS =
             MILLISECONDS_PER_SECOND * FAST_CEILING_IN_SECONDS;
+
+    // Number of recent fixes kept to answer getCurrentPosition
+    public static final int CACHE_SIZE = 8;
+
+    // Default standard deviation of the acceleration for smoothing, in m/s^2
+    public static final double SMOOTHING_PROCESS_NOISE = 3;
+
+    // Maximum number of fixes held by the track simplifier of a watch
+    public static final int SIMPLIFY_WINDOW = 64;
+
+    // Preference setting the number of recent fixes kept for getHistory,
+    // 0 to keep none
+    public static final String HISTORY_SIZE_PREFERENCE = "LocationServicesHistorySize";
+    // Default size of the history, an hour at 1 Hz
+    public static final int HISTORY_SIZE = 3600;
+
+    // The ring file of the track recorder
+    public static final String TRACK_FILE = "locationservices-track.bin";
+    // Default number of fixes kept by the track recorder, a day at 1 Hz
+    public static final int TRACK_CAPACITY = 86400;
+    // Default number of fixes returned by getTrack
+    public static final int TRACK_PAGE_SIZE = 500;
+
+    // Preferences of the reverse geocoding cache: the length of the geohash
+    // of its cells, the number of cells kept and whether they are kept in a
+    // file across sessions
+    public static final String GEOCODE_PRECISION_PREFERENCE = "LocationServicesGeocodePrecision";
+    public static final String GEOCODE_CACHE_SIZE_PREFERENCE = "LocationServicesGeocodeCacheSize";
+    public static final String GEOCODE_PERSIST_PREFERENCE = "LocationServicesGeocodePersist";
+    // Default geohash length, cells of about 150 m
+    public static final int GEOCODE_PRECISION = 7;
+    public static final int GEOCODE_CACHE_SIZE = 500;
+    public static final String GEOCODE_FILE = "locationservices-geocode.json";
+    // Addresses asked to the Geocoder for a cell
+    public static final int GEOCODE_MAX_RESULTS = 5;
+
+    // Size of the cells of the geofence index in degrees, about 1 km
+    public static final double GEOFENCE_CELL_SIZE = 0.01;
+    // Geofences covering more cells are tested against every fix
+    public static final int GEOFENCE_MAX_CELLS = 256;
+
+    // Speeds in m/s under which an adaptive watch steps down to the slow
+    // and the stationary tiers
+    public static final double ADAPTIVE_SLOW_SPEED = 3;
+    public static final double ADAPTIVE_STATIONARY_SPEED = 0.5;
+    // Factor applied to the speed thresholds to step up again
+    public static final double ADAPTIVE_HYSTERESIS = 1.5;
+    // Time the device must stay slower before a step down, in milliseconds
+    public static final long ADAPTIVE_STEP_DOWN_DELAY = 60000;
+    // Minimum intervals of the slow and the stationary tiers
+    public static final long ADAPTIVE_SLOW_INTERVAL = 15000;
+    public static final long ADAPTIVE_STATIONARY_INTERVAL = 60000;
+
+    // Mean radius of the Earth in meters
+    public static final double EARTH_RADIUS = 6371008.8;
+
+    /**
+     * Distance east of an origin, on the plane tangent to the Earth at the
+     * origin. Good enough at the scale of a few kilometers.
+     *
+     * @param cos The cosine of the latitude of the origin
+     * @return The distance in meters, negative to the west
+     */
+    public static double metersEast(double longitude, double originLongitude, double cos) {
+        return Math.toRadians(longitude - originLongitude) * cos * EARTH_RADIUS;
+    }
+
+    /**
+     * Distance north of an origin, on the plane tangent to the Earth at the
+     * origin.
+     *
+     * @return The distance in meters, negative to the south
+     */
+    public static double metersNorth(double latitude, double originLatitude) {
+        return Math.toRadians(latitude - originLatitude) * EARTH_RADIUS;
+    }
 }
@@ -0,0 +1,498 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.os.SystemClock;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A watch registered from JavaScript and the location parameters it asked
+ * for.
+ */
+public class LocationWatch {
+
+    public static final int FORMAT_JSON = 0;
+    public static final int FORMAT_COMPACT = 1;
+    public static final int FORMAT_POLYLINE = 2;
+
+    // Every fix is sent, whether JavaScript keeps up or not
+    public static final int DELIVERY_ALL = 0;
+    // Only the newest fix waits for an acknowledgement
+    public static final int DELIVERY_LATEST = 1;
+    // Up to queueSize fixes wait, the oldest are dropped
+    public static final int DELIVERY_QUEUE = 2;
+
+    private final String mId;
+    private final CallbackContext mCallbackContext;
+    private final int mPriority;
+    private final long mInterval;
+    private final long mFastInterval;
+    private final long mMaxWaitTime;
+    private final int mBatchSize;
+    private final int mFormat;
+    private final float mMinDistance;
+    private final long mMinTime;
+    private final long mTimeout;
+    private final TrackSimplifier mSimplifier;
+    private final KalmanFilter mFilter;
+    private final MotionScheduler mScheduler;
+    private final boolean mBackground;
+    private final int mDelivery;
+    private final int mQueueSize;
+    private final int mMaxInFlight;
+    private final ArrayDeque<LocationPayload> mPending = new ArrayDeque<LocationPayload>();
+    private int mInFlight = 0;
+    private long mSentAt = 0;
+    private final PolylineEncoder mPolyline = new PolylineEncoder();
+    private final ArrayDeque<LocationPayload> mBatch = new ArrayDeque<LocationPayload>();
+    private final long mAddedAt = SystemClock.elapsedRealtime();
+    private final AtomicLong mResults = new AtomicLong();
+    private Location mLastDelivery = null;
+    private long mDeadline = Long.MAX_VALUE;
+
+    /**
+     * @param options The extended watch options sent by JavaScript, may be null
+     */
+    public LocationWatch(String id, CallbackContext callbackContext,
+                         int priority, long interval, long fastInterval,
+                         JSONObject options) {
+        mId = id;
+        mCallbackContext = callbackContext;
+        mPriority = priority;
+        mInterval = interval;
+        mFastInterval = fastInterval;
+
+        if (options == null) {
+            options = new JSONObject();
+        }
+        mMaxWaitTime = Math.max(0, options.optLong("maxWaitTime", 0));
+        mBatchSize = Math.max(0, options.optInt("batchSize", 0));
+        String format = options.optString("format", "json");
+        if (format.equals("compact")) {
+            mFormat = FORMAT_COMPACT;
+        } else if (format.equals("polyline")) {
+            mFormat = FORMAT_POLYLINE;
+        } else {
+            mFormat = FORMAT_JSON;
+        }
+        mMinDistance = (float) Math.max(0, options.optDouble("minDistance", 0));
+        mMinTime = Math.max(0, options.optLong("minTime", 0));
+        // An infinite timeout is sent as null and read as 0, no deadline
+        mTimeout = Math.max(0, options.optLong("timeout", 0));
+
+        double tolerance = options.optDouble("simplifyTolerance", 0);
+        if (tolerance > 0) {
+            mSimplifier = new TrackSimplifier(tolerance, LocationUtils.SIMPLIFY_WINDOW);
+        } else {
+            mSimplifier = null;
+        }
+
+        if (options.optBoolean("smoothing", false)) {
+            mFilter = new KalmanFilter(
+                    options.optDouble("processNoise", LocationUtils.SMOOTHING_PROCESS_NOISE),
+                    options.optDouble("maxSpeed", 0),
+                    options.optDouble("maxAcceleration", 0));
+        } else {
+            mFilter = null;
+        }
+
+        if (options.optBoolean("adaptive", false)) {
+            mScheduler = new MotionScheduler(priority, interval, fastInterval);
+        } else {
+            mScheduler = null;
+        }
+
+        mBackground = options.optBoolean("background", false);
+
+        String delivery = options.optString("delivery", "all");
+        if (delivery.equals("latest")) {
+            mDelivery = DELIVERY_LATEST;
+        } else if (delivery.equals("queue")) {
+            mDelivery = DELIVERY_QUEUE;
+        } else {
+            mDelivery = DELIVERY_ALL;
+        }
+        mQueueSize = Math.max(1, options.optInt("queueSize", LocationUtils.DELIVERY_QUEUE_SIZE));
+        mMaxInFlight = Math.max(1, options.optInt("maxInFlight", 1));
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public CallbackContext getCallbackContext() {
+        return mCallbackContext;
+    }
+
+    /**
+     * @return The priority of this watch, lowered by the current tier of an
+     * adaptive watch
+     */
+    public int getPriority() {
+        return mScheduler != null ? mScheduler.getPriority() : mPriority;
+    }
+
+    public long getInterval() {
+        return mScheduler != null ? mScheduler.getInterval() : mInterval;
+    }
+
+    public long getFastInterval() {
+        return mScheduler != null ? mScheduler.getFastInterval() : mFastInterval;
+    }
+
+    /**
+     * @return The elapsed realtime at which the watch was added
+     */
+    public long getAddedAt() {
+        return mAddedAt;
+    }
+
+    /**
+     * @return The number of results sent to this watch, safe to call from
+     * any thread
+     */
+    public long getResults() {
+        return mResults.get();
+    }
+
+    public void sent() {
+        mResults.incrementAndGet();
+    }
+
+    public void resetResults() {
+        mResults.set(0);
+    }
+
+    public long getMaxWaitTime() {
+        return mMaxWaitTime;
+    }
+
+    /**
+     * @return The distance in meters the device must move between two
+     * deliveries
+     */
+    public float getMinDistance() {
+        return mMinDistance;
+    }
+
+    /**
+     * @return The uptime at which this watch times out if it does not get a
+     * new fix, or Long.MAX_VALUE
+     */
+    public long getDeadline() {
+        return mDeadline;
+    }
+
+    /**
+     * Move the deadline of this watch after a new fix. Batched watches get
+     * their fixes late, so the maximum wait time is added to the timeout.
+     *
+     * @param uptime The current uptime in milliseconds
+     */
+    public void touch(long uptime) {
+        if (mTimeout > 0) {
+            mDeadline = uptime + mTimeout + mMaxWaitTime;
+        }
+    }
+
+    /**
+     * @return true if this watch keeps the app tracking in the background
+     */
+    public boolean isBackground() {
+        return mBackground;
+    }
+
+    /**
+     * @return true if JavaScript acknowledges the results of this watch
+     */
+    public boolean isAcknowledged() {
+        return mDelivery != DELIVERY_ALL;
+    }
+
+    /**
+     * A watch is blocked while maxInFlight results are not acknowledged. An
+     * acknowledgement lost by JavaScript only blocks it for ACK_TIMEOUT.
+     *
+     * @param uptime The current uptime in milliseconds
+     * @return true if the next fix must wait
+     */
+    public boolean isBlocked(long uptime) {
+        if (mDelivery == DELIVERY_ALL || mInFlight < mMaxInFlight) {
+            return false;
+        }
+        if (uptime - mSentAt >= LocationUtils.ACK_TIMEOUT) {
+            mInFlight = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Count a result sent to JavaScript and not acknowledged yet.
+     *
+     * @param uptime The current uptime in milliseconds
+     */
+    public void inFlight(long uptime) {
+        if (mDelivery != DELIVERY_ALL) {
+            mInFlight++;
+            mSentAt = uptime;
+        }
+    }
+
+    /**
+     * @param uptime The current uptime in milliseconds
+     * @return The time since the acknowledged result was sent, or -1 if no
+     * result was in flight
+     */
+    public long acknowledged(long uptime) {
+        if (mInFlight == 0) {
+            return -1;
+        }
+        mInFlight--;
+        return uptime - mSentAt;
+    }
+
+    /**
+     * Keep a fix until JavaScript acknowledges the results in flight.
+     *
+     * @return The number of fixes replaced or dropped
+     */
+    public int hold(LocationPayload payload) {
+        int dropped = 0;
+        if (mDelivery == DELIVERY_LATEST) {
+            dropped = mPending.size();
+            mPending.clear();
+        } else if (mPending.size() >= mQueueSize) {
+            mPending.removeFirst();
+            dropped = 1;
+        }
+        mPending.addLast(payload);
+        return dropped;
+    }
+
+    public boolean hasPending() {
+        return !mPending.isEmpty();
+    }
+
+    /**
+     * @return The oldest fix held, or null
+     */
+    public LocationPayload nextPending() {
+        return mPending.pollFirst();
+    }
+
+    /**
+     * @return true if the fixes are delivered to JavaScript in batches
+     */
+    public boolean isBatched() {
+        return mMaxWaitTime > 0 || mBatchSize > 0;
+    }
+
+    /**
+     * @return The format of the fixes sent to JavaScript, one of the FORMAT_
+     * constants
+     */
+    public int getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * Append the given fix to the encoded polyline of this watch.
+     *
+     * @param out Receives the encoded chunk
+     */
+    public void encodePolyline(Location loc, StringBuilder out) {
+        mPolyline.encode(loc, out);
+    }
+
+    /**
+     * @return The power scheduler of an adaptive watch, or null
+     */
+    public MotionScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * Update the power tier of an adaptive watch with a new raw fix.
+     *
+     * @return true if the tier, and so the location parameters, changed
+     */
+    public boolean observe(Location loc) {
+        return mScheduler != null && mScheduler.observe(loc);
+    }
+
+    /**
+     * @return true if the fixes are smoothed before they are delivered
+     */
+    public boolean isSmoothed() {
+        return mFilter != null;
+    }
+
+    /**
+     * Smooth a raw fix. Every fix received must be passed to the filter,
+     * before any other filtering.
+     *
+     * @return The smoothed fix, or null if it was rejected as an outlier.
+     * The next call overwrites it, copy it to keep it.
+     */
+    public Location smooth(Location loc) {
+        return mFilter.filter(loc);
+    }
+
+    /**
+     * Pass a due fix through the simplifier of this watch, if any.
+     *
+     * @return The fix to deliver, which may be an older one, or null
+     */
+    public LocationPayload simplify(LocationPayload payload) {
+        if (mSimplifier == null) {
+            return payload;
+        }
+        return mSimplifier.offer(payload);
+    }
+
+    /**
+     * Down-sample the merged location stream to the interval of this watch,
+     * then apply its minTime and minDistance filters.
+     * <p/>
+     * Fixes are accepted a little early (a tenth of the interval) so that
+     * the jitter of the provider does not make us skip every other fix.
+     *
+     * @param loc The new location
+     * @return true if the location should be delivered to this watch
+     */
+    public boolean isDue(Location loc) {
+        if (mLastDelivery == null) {
+            return true;
+        }
+
+        long elapsed = loc.getTime() - mLastDelivery.getTime();
+        long interval = getInterval();
+        long gap = Math.max(getFastInterval(), interval - interval / 10);
+
+        if (elapsed < gap || elapsed < mMinTime) {
+            return false;
+        }
+
+        return mMinDistance <= 0 || loc.distanceTo(mLastDelivery) >= mMinDistance;
+    }
+
+    /**
+     * @return true once a fix was delivered to this watch
+     */
+    public boolean hasDelivered() {
+        return mLastDelivery != null;
+    }
+
+    public void delivered(Location loc) {
+        mLastDelivery = loc;
+    }
+
+    /**
+     * Buffer a fix until the batch is sent. The buffer is bounded, the
+     * oldest fix is dropped when it is full.
+     *
+     * @return true if a fix was dropped
+     */
+    public boolean addToBatch(LocationPayload payload) {
+        mBatch.addLast(payload);
+        if (mBatch.size() > LocationUtils.BATCH_BUFFER_SIZE) {
+            mBatch.removeFirst();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean hasBatch() {
+        return !mBatch.isEmpty();
+    }
+
+    /**
+     * A batch is flushed when it holds batchSize fixes, or when its oldest
+     * fix is about maxWaitTime old.
+     *
+     * @param now The current time in milliseconds
+     * @return true if the batch should be sent now
+     */
+    public boolean isBatchFull(long now) {
+        if (mBatch.isEmpty()) {
+            return false;
+        }
+        if (mBatchSize > 0 && mBatch.size() >= mBatchSize) {
+            return true;
+        }
+        if (mMaxWaitTime > 0) {
+            long age = now - mBatch.peekFirst().getLocation().getTime();
+            return age >= mMaxWaitTime - mMaxWaitTime / 10;
+        }
+        return false;
+    }
+
+    /**
+     * Apply the delivery policy to the fixes buffered while paused: only the
+     * newest is kept with the latest delivery, the queueSize newest with the
+     * queue delivery.
+     *
+     * @return The number of fixes dropped
+     */
+    public int coalesceBatch() {
+        int keep;
+        if (mDelivery == DELIVERY_LATEST) {
+            keep = 1;
+        } else if (mDelivery == DELIVERY_QUEUE) {
+            keep = mQueueSize;
+        } else {
+            return 0;
+        }
+        int dropped = 0;
+        while (mBatch.size() > keep) {
+            mBatch.removeFirst();
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * @return The time in milliseconds at which the batch is full because
+     * of its age, or Long.MAX_VALUE if it fills up with fixes only
+     */
+    public long getBatchDeadline() {
+        if (mBatch.isEmpty() || mMaxWaitTime <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return mBatch.peekFirst().getLocation().getTime() + mMaxWaitTime - mMaxWaitTime / 10;
+    }
+
+    /**
+     * @return The buffered fixes, the buffer is emptied
+     */
+    public List<LocationPayload> drainBatch() {
+        List<LocationPayload> batch = new ArrayList<LocationPayload>(mBatch);
+        mBatch.clear();
+        return batch;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import com.google.android.gms.location.LocationRequest;
+
+/**
+ * Chooses the power tier of an adaptive watch from the motion of the device.
+ * <p/>
+ * The speed is estimated from each fix: the speed reported by the provider
+ * if any, else the distance travelled since the device was last seen
+ * moving, once it is larger than the accuracy of the fixes.
+ * The tier goes up as soon as the speed is clearly above the threshold of
+ * the current tier, and goes down one step at a time once the speed stayed
+ * below it for a while, so that the subscription does not flap. The
+ * stationary tier only lengthens the interval of the slow tier.
+ */
+public class MotionScheduler {
+
+    public static final int TIER_MOVING = 0;
+    public static final int TIER_SLOW = 1;
+    public static final int TIER_STATIONARY = 2;
+
+    private static final String[] TIER_NAMES = {"moving", "slow", "stationary"};
+
+    private final int mPriority;
+    private final long mInterval;
+    private final long mFastInterval;
+
+    private int mTier = TIER_MOVING;
+    private long mStepDownSince = -1;
+    private Location mAnchor = null;
+    private float mSpeed = 0;
+
+    /**
+     * @param priority     The priority of the watch, used when moving
+     * @param interval     The interval of the watch, used when moving
+     * @param fastInterval The fast interval of the watch
+     */
+    public MotionScheduler(int priority, long interval, long fastInterval) {
+        mPriority = priority;
+        mInterval = interval;
+        mFastInterval = fastInterval;
+    }
+
+    public int getTier() {
+        return mTier;
+    }
+
+    public String getTierName() {
+        return TIER_NAMES[mTier];
+    }
+
+    /**
+     * @return The last estimated speed in m/s
+     */
+    public float getSpeed() {
+        return mSpeed;
+    }
+
+    public int getPriority() {
+        switch (mTier) {
+            case TIER_SLOW:
+            case TIER_STATIONARY:
+                // Low power fixes come from cell towers and Wi-Fi, too coarse
+                // to notice the device moving again
+                return Math.max(mPriority, LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+            default:
+                return mPriority;
+        }
+    }
+
+    public long getInterval() {
+        switch (mTier) {
+            case TIER_SLOW:
+                return Math.max(mInterval, LocationUtils.ADAPTIVE_SLOW_INTERVAL);
+            case TIER_STATIONARY:
+                return Math.max(mInterval, LocationUtils.ADAPTIVE_STATIONARY_INTERVAL);
+            default:
+                return mInterval;
+        }
+    }
+
+    public long getFastInterval() {
+        return Math.min(mFastInterval, getInterval());
+    }
+
+    /**
+     * Update the tier with a new raw fix.
+     *
+     * @return true if the tier changed
+     */
+    public boolean observe(Location loc) {
+        mSpeed = estimateSpeed(loc);
+        int target = target(mSpeed);
+
+        if (target < mTier) {
+            mTier = target;
+            mStepDownSince = -1;
+            return true;
+        }
+
+        if (target == mTier) {
+            mStepDownSince = -1;
+            return false;
+        }
+
+        if (mStepDownSince < 0) {
+            mStepDownSince = loc.getTime();
+        } else if (loc.getTime() - mStepDownSince >= LocationUtils.ADAPTIVE_STEP_DOWN_DELAY) {
+            mTier++;
+            // The next step down needs the same delay again
+            mStepDownSince = loc.getTime();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The tier the speed calls for, going up needs a margin above
+     * the thresholds
+     */
+    private int target(float speed) {
+        double slow = LocationUtils.ADAPTIVE_SLOW_SPEED;
+        double stationary = LocationUtils.ADAPTIVE_STATIONARY_SPEED;
+        if (mTier > TIER_MOVING) {
+            slow *= LocationUtils.ADAPTIVE_HYSTERESIS;
+        }
+        if (mTier > TIER_SLOW) {
+            stationary *= LocationUtils.ADAPTIVE_HYSTERESIS;
+        }
+
+        if (speed >= slow) {
+            return TIER_MOVING;
+        }
+        if (speed >= stationary) {
+            return TIER_SLOW;
+        }
+        return TIER_STATIONARY;
+    }
+
+    private float estimateSpeed(Location loc) {
+        if (loc.hasSpeed()) {
+            mAnchor = loc;
+            return loc.getSpeed();
+        }
+
+        Location anchor = mAnchor;
+        if (anchor == null || loc.getTime() <= anchor.getTime()) {
+            mAnchor = loc;
+            return mSpeed;
+        }
+
+        long elapsed = loc.getTime() - anchor.getTime();
+        float distance = loc.distanceTo(anchor);
+        // A slow move only shows once it is larger than the accuracy, the
+        // anchor is kept until then
+        if (distance > Math.max(loc.getAccuracy(), anchor.getAccuracy())) {
+            mAnchor = loc;
+            return distance * 1000f / elapsed;
+        }
+        if (elapsed > LocationUtils.ADAPTIVE_STEP_DOWN_DELAY) {
+            mAnchor = loc;
+        }
+        return 0;
+    }
+}
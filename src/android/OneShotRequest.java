@@ -0,0 +1,184 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.os.SystemClock;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A getLocation request waiting for a fix, with the options sent by
+ * JavaScript: [maximumAge, enableHighAccuracy, options].
+ * <p/>
+ * With a desiredAccuracy, the request keeps the best fix until one meets it
+ * or the deadline passes, and is then answered with the best fix.
+ */
+public class OneShotRequest {
+
+    private final CallbackContext mCallbackContext;
+    private final long mMaximumAge;
+    private final boolean mHighAccuracy;
+    private final float mMaximumAccuracy;
+    private final long mTimeout;
+    private final float mDesiredAccuracy;
+    private final long mDeadline;
+    private final boolean mProgress;
+    private final long mCreatedAt = SystemClock.uptimeMillis();
+    // The most accurate fix received while refining
+    private LocationPayload mBest;
+
+    public OneShotRequest(JSONArray args, CallbackContext callbackContext) {
+        mCallbackContext = callbackContext;
+        mMaximumAge = Math.max(0, args.optLong(0, 0));
+        mHighAccuracy = args.optBoolean(1, false);
+
+        JSONObject options = args.optJSONObject(2);
+        if (options == null) {
+            options = new JSONObject();
+        }
+        mMaximumAccuracy = (float) Math.max(0, options.optDouble("maximumAccuracy", 0));
+        // An infinite timeout is sent as null
+        if (options.isNull("timeout")) {
+            mTimeout = Long.MAX_VALUE;
+        } else {
+            mTimeout = Math.max(0, options.optLong("timeout", Long.MAX_VALUE));
+        }
+        mDesiredAccuracy = (float) Math.max(0, options.optDouble("desiredAccuracy", 0));
+        // Refining stops at the timeout without a deadline
+        long deadline = options.optLong("deadline", 0);
+        mDeadline = deadline > 0 ? Math.min(deadline, mTimeout) : mTimeout;
+        mProgress = options.optBoolean("progress", false);
+    }
+
+    public CallbackContext getCallbackContext() {
+        return mCallbackContext;
+    }
+
+    public long getMaximumAge() {
+        return mMaximumAge;
+    }
+
+    /**
+     * @return The priority of a single fix request for this request
+     */
+    public int getPriority() {
+        return mHighAccuracy ? LocationRequest.PRIORITY_HIGH_ACCURACY
+                : LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+    }
+
+    public float getMaximumAccuracy() {
+        return mMaximumAccuracy;
+    }
+
+    /**
+     * @return The accuracy a fix needs to answer the request at once, 0 for
+     * any fix
+     */
+    public float getTargetAccuracy() {
+        if (mDesiredAccuracy > 0 && (mMaximumAccuracy <= 0 || mDesiredAccuracy < mMaximumAccuracy)) {
+            return mDesiredAccuracy;
+        }
+        return mMaximumAccuracy;
+    }
+
+    /**
+     * @param uptime The current uptime in milliseconds
+     * @return The time left before the request times out, counted from the
+     * call to getLocation, or Long.MAX_VALUE if it never times out
+     */
+    public long getRemainingTimeout(long uptime) {
+        if (mTimeout == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, mCreatedAt + mTimeout - uptime);
+    }
+
+    /**
+     * @param uptime The current uptime in milliseconds
+     * @return The time left before the request stops refining, or
+     * Long.MAX_VALUE if it refines until it times out
+     */
+    public long getRemainingDeadline(long uptime) {
+        if (mDeadline == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, mCreatedAt + mDeadline - uptime);
+    }
+
+    /**
+     * @return true if the request wants the better fixes received while it
+     * refines
+     */
+    public boolean wantsProgress() {
+        return mProgress;
+    }
+
+    /**
+     * @return true if the request waits for a fix more accurate than this
+     * one, its deadline not passed
+     */
+    public boolean isRefining(Location loc, long uptime) {
+        return mDesiredAccuracy > 0 && !isDesired(loc) && getRemainingDeadline(uptime) > 0;
+    }
+
+    /**
+     * Keep a fix received while refining if it is the most accurate yet.
+     *
+     * @return true if the fix is kept
+     */
+    public boolean offer(LocationPayload payload) {
+        if (mBest != null && payload.getLocation().getAccuracy() >= mBest.getLocation().getAccuracy()) {
+            return false;
+        }
+        mBest = payload;
+        return true;
+    }
+
+    /**
+     * @return The most accurate fix received while refining, or null
+     */
+    public LocationPayload getBest() {
+        return mBest;
+    }
+
+    /**
+     * @return true if the fix is accurate enough for this request
+     */
+    public boolean accepts(Location loc) {
+        return mMaximumAccuracy <= 0 || loc.getAccuracy() <= mMaximumAccuracy;
+    }
+
+    /**
+     * @return true if the fix is recent and accurate enough to answer this
+     * request without waiting for a new one
+     */
+    public boolean acceptsCached(Location loc) {
+        return System.currentTimeMillis() - loc.getTime() <= mMaximumAge && accepts(loc)
+                && isDesired(loc);
+    }
+
+    private boolean isDesired(Location loc) {
+        return mDesiredAccuracy <= 0 || (loc.hasAccuracy() && loc.getAccuracy() <= mDesiredAccuracy);
+    }
+}
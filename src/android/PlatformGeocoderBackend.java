@@ -0,0 +1,88 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The Geocoder of the platform, in the language of the device.
+ */
+public class PlatformGeocoderBackend implements GeocoderBackend {
+
+    private final Geocoder mGeocoder;
+
+    public PlatformGeocoderBackend(Context context) {
+        mGeocoder = new Geocoder(context, Locale.getDefault());
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return Geocoder.isPresent();
+    }
+
+    @Override
+    public JSONArray getAddresses(double latitude, double longitude, int maxResults)
+            throws IOException {
+        List<Address> addresses = mGeocoder.getFromLocation(latitude, longitude, maxResults);
+        JSONArray result = new JSONArray();
+        if (addresses == null) {
+            return result;
+        }
+        try {
+            for (Address address : addresses) {
+                result.put(toJSON(address));
+            }
+        } catch (JSONException e) {
+            throw new IOException("Unable to encode the address", e);
+        }
+        return result;
+    }
+
+    private static JSONObject toJSON(Address address) throws JSONException {
+        JSONArray lines = new JSONArray();
+        for (int i = 0; i <= address.getMaxAddressLineIndex(); i++) {
+            lines.put(address.getAddressLine(i));
+        }
+
+        // Unknown fields are left out
+        JSONObject o = new JSONObject();
+        o.put("lines", lines);
+        o.putOpt("featureName", address.getFeatureName());
+        o.putOpt("subThoroughfare", address.getSubThoroughfare());
+        o.putOpt("thoroughfare", address.getThoroughfare());
+        o.putOpt("subLocality", address.getSubLocality());
+        o.putOpt("locality", address.getLocality());
+        o.putOpt("subAdminArea", address.getSubAdminArea());
+        o.putOpt("adminArea", address.getAdminArea());
+        o.putOpt("postalCode", address.getPostalCode());
+        o.putOpt("countryCode", address.getCountryCode());
+        o.putOpt("countryName", address.getCountryName());
+        return o;
+    }
+}
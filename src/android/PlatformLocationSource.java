@@ -0,0 +1,361 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.OnTokenCanceledListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The GPS and network providers of the platform, for the devices without
+ * Google Play services.
+ * <p/>
+ * A subscription listens to the providers matching the priority of its
+ * request. A single fix races the providers and returns the first fix
+ * accurate enough, the other providers are stopped at once.
+ */
+public class PlatformLocationSource implements LocationSource {
+
+    private final LocationManager mLocationManager;
+    private final Map<Listener, Subscription> mSubscriptions = new HashMap<Listener, Subscription>();
+    private volatile Location mLastLocation;
+
+    public PlatformLocationSource(LocationManager manager) {
+        mLocationManager = manager;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        List<String> providers = mLocationManager.getAllProviders();
+        return providers.contains(LocationManager.GPS_PROVIDER)
+                || providers.contains(LocationManager.NETWORK_PROVIDER);
+    }
+
+    @Override
+    public void connect() {
+    }
+
+    @Override
+    public void disconnect() {
+        synchronized (mSubscriptions) {
+            for (Subscription subscription : mSubscriptions.values()) {
+                mLocationManager.removeUpdates(subscription);
+            }
+            mSubscriptions.clear();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    /**
+     * @return The most recent of the fixes received and of the last known
+     * locations of the providers
+     */
+    @Override
+    public Location getLastLocation() {
+        Location last = mLastLocation;
+        for (String provider : mLocationManager.getAllProviders()) {
+            try {
+                last = newest(last, mLocationManager.getLastKnownLocation(provider));
+            } catch (SecurityException e) {
+                Log.w(LocationUtils.APPTAG, "No permission for the " + provider + " provider");
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public boolean awaitLastLocation(Runnable task, Looper looper) {
+        return false;
+    }
+
+    @Override
+    public void requestLocationUpdates(LocationRequest request,
+                                       Listener listener, Looper looper) {
+        synchronized (mSubscriptions) {
+            Subscription previous = mSubscriptions.remove(listener);
+            if (previous != null) {
+                mLocationManager.removeUpdates(previous);
+            }
+
+            Subscription subscription = new Subscription(listener, request.getInterval(),
+                    previous != null ? previous.mLast : null);
+            for (String provider : getProviders(request.getPriority())) {
+                try {
+                    mLocationManager.requestLocationUpdates(provider, request.getInterval(),
+                            request.getSmallestDisplacement(), subscription, looper);
+                } catch (SecurityException e) {
+                    Log.w(LocationUtils.APPTAG, "No permission for the " + provider + " provider");
+                }
+            }
+            mSubscriptions.put(listener, subscription);
+        }
+    }
+
+    @Override
+    public void removeLocationUpdates(Listener listener) {
+        Subscription subscription;
+        synchronized (mSubscriptions) {
+            subscription = mSubscriptions.remove(listener);
+        }
+        if (subscription != null) {
+            mLocationManager.removeUpdates(subscription);
+        }
+    }
+
+    /**
+     * Race the enabled providers for the priority, the first fix meeting
+     * the accuracy wins.
+     *
+     * @return false if no provider is enabled, the subscription gets the
+     * fixes once one is
+     */
+    @Override
+    public boolean getCurrentLocation(int priority, float maximumAccuracy,
+                                      CancellationToken token,
+                                      SingleFixCallback callback, Looper looper) {
+        List<String> providers = new ArrayList<String>();
+        for (String provider : getProviders(priority)) {
+            if (mLocationManager.isProviderEnabled(provider)) {
+                providers.add(provider);
+            }
+        }
+
+        Race race = new Race(maximumAccuracy, token, callback, looper);
+        for (String provider : providers) {
+            race.start(provider, looper);
+        }
+        if (race.isEmpty()) {
+            return false;
+        }
+        token.onCanceledRequested(race);
+        return true;
+    }
+
+    /**
+     * @return The existing providers used for a priority, GPS only for a
+     * high accuracy or when there is no network provider
+     */
+    private List<String> getProviders(int priority) {
+        List<String> all = mLocationManager.getAllProviders();
+        List<String> providers = new ArrayList<String>(2);
+        if (priority == LocationRequest.PRIORITY_NO_POWER) {
+            providers.add(LocationManager.PASSIVE_PROVIDER);
+            return providers;
+        }
+        if (all.contains(LocationManager.NETWORK_PROVIDER)) {
+            providers.add(LocationManager.NETWORK_PROVIDER);
+        }
+        if (all.contains(LocationManager.GPS_PROVIDER)
+                && (priority == LocationRequest.PRIORITY_HIGH_ACCURACY || providers.isEmpty())) {
+            providers.add(LocationManager.GPS_PROVIDER);
+        }
+        return providers;
+    }
+
+    private void onLocation(Location location) {
+        mLastLocation = newest(mLastLocation, location);
+    }
+
+    private static Location newest(Location a, Location b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return b.getTime() > a.getTime() ? b : a;
+    }
+
+    /**
+     * Sends the fixes of the providers of a subscription to its listener,
+     * skipping those less accurate than a recent fix of another provider.
+     */
+    private class Subscription implements android.location.LocationListener {
+
+        private final Listener mListener;
+        // Time after which a less accurate provider is used again
+        private final long mSwitchDelay;
+        private Location mLast;
+
+        Subscription(Listener listener, long interval, Location last) {
+            mListener = listener;
+            mSwitchDelay = Math.max(2 * interval, LocationUtils.PROVIDER_SWITCH_DELAY);
+            mLast = last;
+        }
+
+        @Override
+        public void onLocationChanged(Location location) {
+            onLocation(location);
+            if (mLast != null
+                    && !location.getProvider().equals(mLast.getProvider())
+                    && location.getAccuracy() > mLast.getAccuracy()
+                    && location.getTime() - mLast.getTime() < mSwitchDelay) {
+                return;
+            }
+            mLast = location;
+            mListener.onLocationChanged(location);
+        }
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {
+        }
+
+        @Override
+        public void onProviderEnabled(String provider) {
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+        }
+    }
+
+    /**
+     * A single fix raced between providers. Runs on the looper of the
+     * request, the cancellation is posted to it.
+     */
+    private class Race implements OnTokenCanceledListener {
+
+        private final float mMaximumAccuracy;
+        private final CancellationToken mToken;
+        private final SingleFixCallback mCallback;
+        private final Handler mHandler;
+        private final Map<String, android.location.LocationListener> mRunning =
+                new HashMap<String, android.location.LocationListener>();
+        // The most accurate fix missing the accuracy
+        private Location mBest;
+        private boolean mDone = false;
+
+        Race(float maximumAccuracy, CancellationToken token, SingleFixCallback callback,
+             Looper looper) {
+            mMaximumAccuracy = maximumAccuracy;
+            mToken = token;
+            mCallback = callback;
+            mHandler = new Handler(looper);
+        }
+
+        void start(final String provider, Looper looper) {
+            android.location.LocationListener listener = new android.location.LocationListener() {
+                @Override
+                public void onLocationChanged(Location location) {
+                    onFix(provider, location);
+                }
+
+                @Override
+                public void onStatusChanged(String provider, int status, Bundle extras) {
+                }
+
+                @Override
+                public void onProviderEnabled(String provider) {
+                }
+
+                @Override
+                public void onProviderDisabled(String provider) {
+                    onStopped(provider);
+                }
+            };
+            try {
+                mLocationManager.requestLocationUpdates(provider, 0, 0, listener, looper);
+                mRunning.put(provider, listener);
+            } catch (SecurityException e) {
+                Log.w(LocationUtils.APPTAG, "No permission for the " + provider + " provider");
+            }
+        }
+
+        boolean isEmpty() {
+            return mRunning.isEmpty();
+        }
+
+        @Override
+        public void onCanceled() {
+            // Called on the cancelling thread
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mDone = true;
+                    stopAll();
+                }
+            });
+        }
+
+        private void onFix(String provider, Location location) {
+            if (mDone) {
+                return;
+            }
+            onLocation(location);
+            if (mMaximumAccuracy <= 0
+                    || (location.hasAccuracy() && location.getAccuracy() <= mMaximumAccuracy)) {
+                finish(location);
+                return;
+            }
+
+            if (mBest == null || location.getAccuracy() < mBest.getAccuracy()) {
+                mBest = location;
+            }
+            // Only GPS gets more accurate while it runs
+            if (!LocationManager.GPS_PROVIDER.equals(provider)) {
+                onStopped(provider);
+            }
+        }
+
+        /**
+         * Stop a provider that cannot win, the race ends with the best fix
+         * once none is left.
+         */
+        private void onStopped(String provider) {
+            android.location.LocationListener listener = mRunning.remove(provider);
+            if (listener != null) {
+                mLocationManager.removeUpdates(listener);
+            }
+            if (mRunning.isEmpty() && !mDone) {
+                finish(mBest);
+            }
+        }
+
+        private void finish(Location location) {
+            mDone = true;
+            stopAll();
+            if (!mToken.isCancellationRequested()) {
+                mCallback.onSingleFix(location);
+            }
+        }
+
+        private void stopAll() {
+            for (android.location.LocationListener listener : mRunning.values()) {
+                mLocationManager.removeUpdates(listener);
+            }
+            mRunning.clear();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+/**
+ * Incremental encoder for the Encoded Polyline Algorithm Format.
+ * <p/>
+ * Each point is encoded as the difference with the previous one, so the
+ * chunks returned for successive points can simply be concatenated into a
+ * valid polyline.
+ */
+public class PolylineEncoder {
+
+    private int mLatitude = 0;
+    private int mLongitude = 0;
+
+    public void encode(Location loc, StringBuilder out) {
+        int latitude = (int) Math.round(loc.getLatitude() * 1e5);
+        int longitude = (int) Math.round(loc.getLongitude() * 1e5);
+
+        append(latitude - mLatitude, out);
+        append(longitude - mLongitude, out);
+
+        mLatitude = latitude;
+        mLongitude = longitude;
+    }
+
+    private static void append(int value, StringBuilder out) {
+        value = value < 0 ? ~(value << 1) : value << 1;
+        while (value >= 0x20) {
+            out.append((char) ((0x20 | (value & 0x1f)) + 63));
+            value >>= 5;
+        }
+        out.append((char) (value + 63));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.tasks.CancellationToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a recorded trace through the same path as the fixes of the fused
+ * provider, at real time or accelerated.
+ * <p/>
+ * The fixes keep the time between them in the trace, counted from the time
+ * the replay started, so speeds and time filters see the recorded motion.
+ * Only the delay between two fixes is shortened by the speed. The request
+ * of the listener does not change the trace, the watches filter the fixes
+ * as usual.
+ */
+public class ReplayLocationSource implements LocationSource {
+
+    // Pause between two passes of a looping trace, in trace time
+    private static final long LOOP_GAP = 1000;
+
+    private final List<Location> mTrace;
+    private final double mSpeed;
+    private final boolean mLoop;
+
+    private Handler mHandler;
+    private Listener mListener;
+    private int mNext;
+    // Trace time added by the previous passes
+    private long mShift;
+    // Uptime at which the first point of the trace is replayed
+    private long mStart;
+    // Trace time of the point stamped with the time the replay started
+    private long mTraceOrigin;
+    private long mWallOrigin;
+    private volatile Location mLastLocation;
+
+    private final Runnable mEmitTask = new Runnable() {
+        @Override
+        public void run() {
+            emit();
+        }
+    };
+
+    /**
+     * @param trace The fixes to replay, oldest first
+     * @param speed How many times faster than real time the trace is replayed
+     * @param loop  true to replay the trace again once it ends
+     */
+    public ReplayLocationSource(List<Location> trace, double speed, boolean loop) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("The replay speed must be positive");
+        }
+        mTrace = new ArrayList<Location>(trace);
+        mSpeed = speed;
+        mLoop = loop;
+    }
+
+    public static ReplayLocationSource open(File file, double speed, boolean loop) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            return new ReplayLocationSource(TraceParser.parse(reader), speed, loop);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public int size() {
+        return mTrace.size();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public void connect() {
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        stop();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public Location getLastLocation() {
+        return mLastLocation;
+    }
+
+    @Override
+    public boolean awaitLastLocation(Runnable task, Looper looper) {
+        return false;
+    }
+
+    @Override
+    public synchronized void requestLocationUpdates(LocationRequest request,
+                                                   Listener listener, Looper looper) {
+        mListener = listener;
+        if (mHandler != null || mTrace.isEmpty()) {
+            // A new request does not restart the trace
+            return;
+        }
+
+        mHandler = new Handler(looper);
+        if (mNext >= mTrace.size()) {
+            mNext = 0;
+            mShift = 0;
+        }
+        // Resume where the trace stopped
+        mTraceOrigin = traceTime(mNext);
+        // A fast replay stamps its fixes ahead of the clock, the time of the
+        // next one must not go back
+        Location last = mLastLocation;
+        mWallOrigin = System.currentTimeMillis();
+        if (last != null) {
+            mWallOrigin = Math.max(mWallOrigin, last.getTime());
+        }
+        mStart = SystemClock.uptimeMillis() - Math.round(mTraceOrigin / mSpeed);
+        schedule();
+    }
+
+    @Override
+    public synchronized void removeLocationUpdates(Listener listener) {
+        if (listener == mListener) {
+            stop();
+        }
+    }
+
+    @Override
+    public boolean getCurrentLocation(int priority, float maximumAccuracy,
+                                      CancellationToken token, SingleFixCallback callback, Looper looper) {
+        // A trace only has the fixes it replays
+        return false;
+    }
+
+    private void stop() {
+        if (mHandler != null) {
+            mHandler.removeCallbacks(mEmitTask);
+            mHandler = null;
+        }
+        mListener = null;
+    }
+
+    /**
+     * @return The time of a point since the start of the trace, passes
+     * included
+     */
+    private long traceTime(int index) {
+        return mTrace.get(index).getTime() - mTrace.get(0).getTime() + mShift;
+    }
+
+    private void schedule() {
+        mHandler.postAtTime(mEmitTask, mStart + Math.round(traceTime(mNext) / mSpeed));
+    }
+
+    private void emit() {
+        Listener listener;
+        Location loc;
+        synchronized (this) {
+            if (mHandler == null || mNext >= mTrace.size()) {
+                return;
+            }
+            listener = mListener;
+
+            loc = new Location(mTrace.get(mNext));
+            loc.setTime(mWallOrigin + traceTime(mNext) - mTraceOrigin);
+            mLastLocation = loc;
+
+            mNext++;
+            if (mNext >= mTrace.size() && mLoop) {
+                mShift = traceTime(mTrace.size() - 1) + LOOP_GAP;
+                mNext = 0;
+            }
+            if (mNext < mTrace.size()) {
+                schedule();
+            } else {
+                mHandler = null;
+            }
+        }
+
+        if (listener != null) {
+            listener.onLocationChanged(loc);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a recorded trace: a GPX track, NMEA sentences or CSV lines.
+ * <p/>
+ * The format is found from the first character of the trace. CSV lines hold
+ * the time (in milliseconds or ISO 8601), latitude, longitude, altitude,
+ * accuracy, speed and bearing, in this order unless a header names the
+ * columns. Only the first three columns are required. The malformed points
+ * and lines are skipped.
+ */
+public final class TraceParser {
+
+    public static final String PROVIDER = "replay";
+
+    // Accuracy of the fixes without one, in meters
+    private static final float DEFAULT_ACCURACY = 5;
+    // Converts an HDOP to an accuracy in meters
+    private static final float HDOP_ERROR = 5;
+    private static final float KNOTS = 0.514444f;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static final Pattern GPX_POINT = Pattern.compile(
+            "<trkpt\\b([^>]*)>(.*?)</trkpt>", Pattern.DOTALL);
+    private static final Pattern ISO_TIME = Pattern.compile(
+            "(\\d{4})-(\\d{2})-(\\d{2})[T ](\\d{2}):(\\d{2}):(\\d{2})(\\.\\d+)?"
+                    + "(Z|[+-]\\d{2}:?\\d{2})?");
+
+    private TraceParser() {
+    }
+
+    public static List<Location> parse(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            text.append(buffer, 0, read);
+        }
+
+        String trace = text.toString().trim();
+        if (trace.startsWith("<")) {
+            return parseGpx(trace);
+        }
+        if (trace.startsWith("$")) {
+            return parseNmea(trace);
+        }
+        return parseCsv(trace);
+    }
+
+    private static List<Location> parseGpx(String trace) {
+        List<Location> locs = new ArrayList<Location>();
+        Matcher m = GPX_POINT.matcher(trace);
+        while (m.find()) {
+            try {
+                String attributes = m.group(1);
+                String content = m.group(2);
+
+                Location loc = new Location(PROVIDER);
+                loc.setLatitude(parseDouble(attribute(attributes, "lat")));
+                loc.setLongitude(parseDouble(attribute(attributes, "lon")));
+
+                String ele = element(content, "ele");
+                if (ele != null) {
+                    loc.setAltitude(parseDouble(ele));
+                }
+                String hdop = element(content, "hdop");
+                loc.setAccuracy(hdop != null
+                        ? (float) parseDouble(hdop) * HDOP_ERROR : DEFAULT_ACCURACY);
+                String speed = element(content, "speed");
+                if (speed != null) {
+                    loc.setSpeed((float) parseDouble(speed));
+                }
+                String course = element(content, "course");
+                if (course != null) {
+                    loc.setBearing((float) parseDouble(course));
+                }
+                String time = element(content, "time");
+                loc.setTime(time != null ? parseTime(time) : nextTime(locs));
+
+                locs.add(loc);
+            } catch (IOException e) {
+                skip(e);
+            }
+        }
+        return locs;
+    }
+
+    /**
+     * Reads the RMC sentences, with the altitude and HDOP of the GGA
+     * sentence of the same fix. Traces without RMC sentences are read from
+     * their GGA sentences.
+     */
+    private static List<Location> parseNmea(String trace) {
+        List<Location> rmc = new ArrayList<Location>();
+        List<Location> gga = new ArrayList<Location>();
+        Map<String, Location> ggaByTime = new HashMap<String, Location>();
+        long ggaDay = 0;
+
+        for (String line : trace.split("\r?\n")) {
+            line = line.trim();
+            if (!line.startsWith("$") || !isValidChecksum(line)) {
+                continue;
+            }
+            try {
+                int star = line.indexOf('*');
+                String[] f = line.substring(1, star < 0 ? line.length() : star).split(",", -1);
+                if (f[0].length() < 5) {
+                    continue;
+                }
+                String type = f[0].substring(f[0].length() - 3);
+
+                if (type.equals("RMC") && f.length > 9 && f[2].equals("A")) {
+                    Location loc = new Location(PROVIDER);
+                    loc.setLatitude(parseCoordinate(f[3], f[4]));
+                    loc.setLongitude(parseCoordinate(f[5], f[6]));
+                    loc.setAccuracy(DEFAULT_ACCURACY);
+                    if (f[7].length() > 0) {
+                        loc.setSpeed((float) parseDouble(f[7]) * KNOTS);
+                    }
+                    if (f[8].length() > 0) {
+                        loc.setBearing((float) parseDouble(f[8]));
+                    }
+                    loc.setTime(parseNmeaDate(f[9]) + parseNmeaTime(f[1]));
+
+                    Location fix = ggaByTime.get(f[1]);
+                    if (fix != null) {
+                        if (fix.hasAltitude()) {
+                            loc.setAltitude(fix.getAltitude());
+                        }
+                        loc.setAccuracy(fix.getAccuracy());
+                    }
+                    rmc.add(loc);
+                } else if (type.equals("GGA") && f.length > 9
+                        && f[6].length() > 0 && !f[6].equals("0")) {
+                    Location loc = new Location(PROVIDER);
+                    loc.setLatitude(parseCoordinate(f[2], f[3]));
+                    loc.setLongitude(parseCoordinate(f[4], f[5]));
+                    loc.setAccuracy(f[8].length() > 0
+                            ? (float) parseDouble(f[8]) * HDOP_ERROR : DEFAULT_ACCURACY);
+                    if (f[9].length() > 0) {
+                        loc.setAltitude(parseDouble(f[9]));
+                    }
+
+                    // GGA has no date, count the days from the first fix
+                    long time = parseNmeaTime(f[1]);
+                    if (!gga.isEmpty() && ggaDay + time < gga.get(gga.size() - 1).getTime()) {
+                        ggaDay += DAY;
+                    }
+                    loc.setTime(ggaDay + time);
+
+                    ggaByTime.put(f[1], loc);
+                    gga.add(loc);
+                }
+            } catch (IOException e) {
+                skip(e);
+            }
+        }
+
+        return rmc.isEmpty() ? gga : rmc;
+    }
+
+    private static List<Location> parseCsv(String trace) {
+        List<Location> locs = new ArrayList<Location>();
+        // time, latitude, longitude, altitude, accuracy, speed, bearing
+        int[] columns = {0, 1, 2, 3, 4, 5, 6};
+
+        String[] lines = trace.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.length() == 0 || line.startsWith("#")) {
+                continue;
+            }
+            String[] f = line.split("\\s*[,;\\t]\\s*");
+
+            if (locs.isEmpty() && i == firstLine(lines) && isHeader(f[0])) {
+                columns = readHeader(f);
+                continue;
+            }
+
+            try {
+                Location loc = new Location(PROVIDER);
+                String time = field(f, columns[0]);
+                loc.setTime(time != null ? parseTime(time) : nextTime(locs));
+                loc.setLatitude(parseDouble(field(f, columns[1])));
+                loc.setLongitude(parseDouble(field(f, columns[2])));
+
+                String altitude = field(f, columns[3]);
+                if (altitude != null) {
+                    loc.setAltitude(parseDouble(altitude));
+                }
+                String accuracy = field(f, columns[4]);
+                loc.setAccuracy(accuracy != null
+                        ? (float) parseDouble(accuracy) : DEFAULT_ACCURACY);
+                String speed = field(f, columns[5]);
+                if (speed != null) {
+                    loc.setSpeed((float) parseDouble(speed));
+                }
+                String bearing = field(f, columns[6]);
+                if (bearing != null) {
+                    loc.setBearing((float) parseDouble(bearing));
+                }
+
+                locs.add(loc);
+            } catch (IOException e) {
+                skip(e);
+            }
+        }
+        return locs;
+    }
+
+    private static int firstLine(String[] lines) {
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.length() > 0 && !line.startsWith("#")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isHeader(String first) {
+        return first.length() > 0 && Character.isLetter(first.charAt(0));
+    }
+
+    private static int[] readHeader(String[] names) {
+        int[] columns = {-1, -1, -1, -1, -1, -1, -1};
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].toLowerCase(Locale.US);
+            if (name.equals("time") || name.equals("timestamp")) {
+                columns[0] = i;
+            } else if (name.equals("lat") || name.equals("latitude")) {
+                columns[1] = i;
+            } else if (name.equals("lon") || name.equals("lng") || name.equals("longitude")) {
+                columns[2] = i;
+            } else if (name.equals("alt") || name.equals("altitude") || name.equals("ele")) {
+                columns[3] = i;
+            } else if (name.equals("accuracy")) {
+                columns[4] = i;
+            } else if (name.equals("speed") || name.equals("velocity")) {
+                columns[5] = i;
+            } else if (name.equals("bearing") || name.equals("heading") || name.equals("course")) {
+                columns[6] = i;
+            }
+        }
+        return columns;
+    }
+
+    private static String field(String[] fields, int column) {
+        if (column < 0 || column >= fields.length || fields[column].length() == 0) {
+            return null;
+        }
+        return fields[column];
+    }
+
+    /**
+     * A malformed point or line is left out of the trace.
+     */
+    private static void skip(IOException e) {
+        Log.w(LocationUtils.APPTAG, "Skipping a point of the trace: " + e.getMessage());
+    }
+
+    /**
+     * @return One second after the previous fix, for the traces without time
+     */
+    private static long nextTime(List<Location> locs) {
+        return locs.isEmpty() ? 0 : locs.get(locs.size() - 1).getTime() + 1000;
+    }
+
+    private static String attribute(String attributes, String name) throws IOException {
+        Matcher m = Pattern.compile("\\b" + name + "\\s*=\\s*[\"']([^\"']*)[\"']")
+                .matcher(attributes);
+        if (!m.find()) {
+            throw new IOException("Missing " + name + " in a GPX point");
+        }
+        return m.group(1);
+    }
+
+    private static String element(String content, String name) {
+        int start = content.indexOf("<" + name + ">");
+        if (start < 0) {
+            return null;
+        }
+        start += name.length() + 2;
+        int end = content.indexOf("</" + name + ">", start);
+        return end < 0 ? null : content.substring(start, end).trim();
+    }
+
+    /**
+     * @return The time in milliseconds of an epoch time in milliseconds or
+     * an ISO 8601 date
+     */
+    private static long parseTime(String time) throws IOException {
+        Matcher m = ISO_TIME.matcher(time);
+        if (!m.matches()) {
+            return (long) parseDouble(time);
+        }
+
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        c.clear();
+        c.set(parseInt(m.group(1)), parseInt(m.group(2)) - 1,
+                parseInt(m.group(3)), parseInt(m.group(4)),
+                parseInt(m.group(5)), parseInt(m.group(6)));
+        long millis = c.getTimeInMillis();
+
+        if (m.group(7) != null) {
+            millis += Math.round(parseDouble("0" + m.group(7)) * 1000);
+        }
+
+        String zone = m.group(8);
+        if (zone != null && !zone.equals("Z")) {
+            String digits = zone.replace(":", "");
+            int offset = parseInt(digits.substring(1, 3)) * 60
+                    + parseInt(digits.substring(3, 5));
+            millis -= (zone.charAt(0) == '-' ? -offset : offset) * 60000L;
+        }
+        return millis;
+    }
+
+    private static long parseNmeaTime(String hhmmss) throws IOException {
+        if (hhmmss.length() < 6) {
+            throw new IOException("Invalid NMEA time: " + hhmmss);
+        }
+        double seconds = parseDouble(hhmmss.substring(4));
+        return (parseInt(hhmmss.substring(0, 2)) * 3600L
+                + parseInt(hhmmss.substring(2, 4)) * 60L) * 1000
+                + Math.round(seconds * 1000);
+    }
+
+    private static long parseNmeaDate(String ddmmyy) throws IOException {
+        if (ddmmyy.length() != 6) {
+            throw new IOException("Invalid NMEA date: " + ddmmyy);
+        }
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        c.clear();
+        int year = parseInt(ddmmyy.substring(4, 6));
+        c.set(year < 80 ? 2000 + year : 1900 + year,
+                parseInt(ddmmyy.substring(2, 4)) - 1,
+                parseInt(ddmmyy.substring(0, 2)));
+        return c.getTimeInMillis();
+    }
+
+    /**
+     * @return The degrees of an NMEA coordinate, ddmm.mmmm or dddmm.mmmm
+     */
+    private static double parseCoordinate(String value, String hemisphere) throws IOException {
+        double raw = parseDouble(value);
+        double degrees = Math.floor(raw / 100);
+        degrees += (raw - degrees * 100) / 60;
+        return hemisphere.equals("S") || hemisphere.equals("W") ? -degrees : degrees;
+    }
+
+    private static boolean isValidChecksum(String line) {
+        int star = line.indexOf('*');
+        if (star < 0) {
+            return true;
+        }
+        int sum = 0;
+        for (int i = 1; i < star; i++) {
+            sum ^= line.charAt(i);
+        }
+        try {
+            return sum == Integer.parseInt(line.substring(star + 1).trim(), 16);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static int parseInt(String value) throws IOException {
+        if (value == null) {
+            throw new IOException("Missing number in the trace");
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number in the trace: " + value);
+        }
+    }
+
+    private static double parseDouble(String value) throws IOException {
+        if (value == null) {
+            throw new IOException("Missing number in the trace");
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number in the trace: " + value);
+        }
+    }
+}
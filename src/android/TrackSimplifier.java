@@ -0,0 +1,112 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+/**
+ * Streaming simplification of a track, with bounded memory.
+ * <p/>
+ * The last emitted fix is the anchor. Each new fix is tested as the end of
+ * a segment starting at the anchor: if one of the fixes received since the
+ * anchor is further than the tolerance from that segment, the path turned
+ * and the previous fix is emitted as the new anchor. The first fix is
+ * always emitted, the others are emitted one fix late. When the window is
+ * full the newest fix is emitted so the memory used stays bounded.
+ */
+public class TrackSimplifier {
+
+    private final double mTolerance;
+    private final LocationPayload[] mWindow;
+    private LocationPayload mAnchor = null;
+    private int mSize = 0;
+
+    /**
+     * @param tolerance The maximum distance in meters between a dropped fix
+     *                  and the simplified track
+     * @param window    The maximum number of fixes held between two emitted
+     *                  fixes
+     */
+    public TrackSimplifier(double tolerance, int window) {
+        mTolerance = tolerance;
+        mWindow = new LocationPayload[window];
+    }
+
+    /**
+     * Add a fix to the track.
+     *
+     * @param payload The new fix
+     * @return The fix to emit, which may be an older one, or null
+     */
+    public LocationPayload offer(LocationPayload payload) {
+        if (mAnchor == null) {
+            mAnchor = payload;
+            return payload;
+        }
+
+        Location end = payload.getLocation();
+        for (int i = 0; i < mSize; i++) {
+            if (distanceToSegment(mWindow[i].getLocation(), end) > mTolerance) {
+                LocationPayload turn = mWindow[mSize - 1];
+                mAnchor = turn;
+                clear();
+                mWindow[mSize++] = payload;
+                return turn;
+            }
+        }
+
+        if (mSize == mWindow.length) {
+            mAnchor = payload;
+            clear();
+            return payload;
+        }
+
+        mWindow[mSize++] = payload;
+        return null;
+    }
+
+    private void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mWindow[i] = null;
+        }
+        mSize = 0;
+    }
+
+    /**
+     * Distance from a fix to the segment between the anchor and the given
+     * end, on a plane tangent to the anchor.
+     */
+    private double distanceToSegment(Location point, Location end) {
+        Location start = mAnchor.getLocation();
+        double cos = Math.cos(Math.toRadians(start.getLatitude()));
+
+        double ex = LocationUtils.metersEast(end.getLongitude(), start.getLongitude(), cos);
+        double ey = LocationUtils.metersNorth(end.getLatitude(), start.getLatitude());
+        double px = LocationUtils.metersEast(point.getLongitude(), start.getLongitude(), cos);
+        double py = LocationUtils.metersNorth(point.getLatitude(), start.getLatitude());
+
+        double length = ex * ex + ey * ey;
+        double t = length == 0 ? 0 : (px * ex + py * ey) / length;
+        t = Math.max(0, Math.min(1, t));
+
+        double dx = px - t * ex;
+        double dy = py - t * ey;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+ */
+package fr.louisbl.cordova.locationservices;
+
+import android.location.Location;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Append-only store of the recorded fixes, in a memory-mapped ring file.
+ * <p/>
+ * The file starts with a header followed by fixed-width records. Once the
+ * ring is full the oldest records are overwritten. Every record has a
+ * sequence number, the number of records appended before it, which is used
+ * as the cursor of paged queries. Fixes are appended in time order so a
+ * time window is found with a binary search.
+ */
+public class TrackStore {
+
+    private static final int MAGIC = 0x4c535452; // "LSTR"
+    private static final int VERSION = 1;
+
+    // magic, version, capacity, record size, total appended records
+    private static final int HEADER_SIZE = 32;
+    private static final int OFFSET_CAPACITY = 8;
+    private static final int OFFSET_RECORD_SIZE = 12;
+    private static final int OFFSET_TOTAL = 16;
+
+    // time, latitude, longitude, altitude, accuracy, speed, bearing, padding
+    private static final int RECORD_SIZE = 48;
+
+    // The largest ring a MappedByteBuffer can hold, about 2 GB
+    public static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer mBuffer;
+    private final int mCapacity;
+    private long mTotal;
+    private long mLastTime = Long.MIN_VALUE;
+
+    /**
+     * Open the store, the records of a previous session are kept if the
+     * capacity did not change.
+     *
+     * @param file     The ring file
+     * @param capacity The maximum number of records, up to MAX_CAPACITY
+     */
+    public TrackStore(File file, int capacity) throws IOException {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        mCapacity = capacity;
+        mFile = new RandomAccessFile(file, "rw");
+        try {
+            mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) RECORD_SIZE * capacity);
+        } catch (IOException e) {
+            mFile.close();
+            throw e;
+        }
+        mBuffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mBuffer.getInt(0) == MAGIC
+                && mBuffer.getInt(4) == VERSION
+                && mBuffer.getInt(OFFSET_CAPACITY) == capacity
+                && mBuffer.getInt(OFFSET_RECORD_SIZE) == RECORD_SIZE) {
+            mTotal = mBuffer.getLong(OFFSET_TOTAL);
+            if (mTotal > 0) {
+                mLastTime = mBuffer.getLong(position(mTotal - 1));
+            }
+        } else {
+            mBuffer.putInt(0, MAGIC);
+            mBuffer.putInt(4, VERSION);
+            mBuffer.putInt(OFFSET_CAPACITY, capacity);
+            mBuffer.putInt(OFFSET_RECORD_SIZE, RECORD_SIZE);
+            mBuffer.putLong(OFFSET_TOTAL, 0);
+            mTotal = 0;
+        }
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public synchronized void append(Location loc) {
+        if (loc.getTime() < mLastTime) {
+            // Keep the records ordered so that queries can search them
+            return;
+        }
+
+        int p = position(mTotal);
+        mBuffer.putLong(p, loc.getTime());
+        mBuffer.putDouble(p + 8, loc.getLatitude());
+        mBuffer.putDouble(p + 16, loc.getLongitude());
+        mBuffer.putDouble(p + 24, loc.hasAltitude() ? loc.getAltitude() : Double.NaN);
+        mBuffer.putFloat(p + 32, loc.getAccuracy());
+        mBuffer.putFloat(p + 36, loc.getSpeed());
+        mBuffer.putFloat(p + 40,
+                loc.hasBearing() && loc.hasSpeed() ? loc.getBearing() : Float.NaN);
+
+        mTotal++;
+        mLastTime = loc.getTime();
+        // Written last, a record is only visible once it is complete
+        mBuffer.putLong(OFFSET_TOTAL, mTotal);
+    }
+
+    /**
+     * Get one page of the records in a time window.
+     *
+     * @param from     The start of the window, inclusive
+     * @param to       The end of the window, inclusive
+     * @param cursor   The cursor returned with the previous page, or -1
+     * @param pageSize The maximum number of records to return
+     * @return An object holding the positions and the cursor of the next
+     * page, which is null on the last page
+     */
+    public synchronized JSONObject query(long from, long to, long cursor,
+                                         int pageSize) throws JSONException {
+        long oldest = Math.max(0, mTotal - mCapacity);
+        long seq = Math.max(cursor, oldest);
+
+        if (cursor < 0) {
+            seq = search(oldest, from);
+        }
+
+        JSONArray positions = new JSONArray();
+        while (seq < mTotal && positions.length() < pageSize) {
+            int p = position(seq);
+            long time = mBuffer.getLong(p);
+            if (time > to) {
+                seq = mTotal;
+                break;
+            }
+            if (time >= from) {
+                positions.put(record(p, time));
+            }
+            seq++;
+        }
+
+        JSONObject page = new JSONObject();
+        page.put("positions", positions);
+        page.put("next", seq < mTotal ? seq : JSONObject.NULL);
+        return page;
+    }
+
+    public synchronized void clear() {
+        mTotal = 0;
+        mLastTime = Long.MIN_VALUE;
+        mBuffer.putLong(OFFSET_TOTAL, 0);
+    }
+
+    public synchronized void close() {
+        mBuffer.force();
+        try {
+            mFile.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return The sequence of the first record at or after the given time
+     */
+    private long search(long low, long time) {
+        long high = mTotal;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (mBuffer.getLong(position(mid)) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int position(long seq) {
+        return HEADER_SIZE + (int) (seq % mCapacity) * RECORD_SIZE;
+    }
+
+    private JSONObject record(int p, long time) throws JSONException {
+        double altitude = mBuffer.getDouble(p + 24);
+        float bearing = mBuffer.getFloat(p + 40);
+
+        JSONObject o = new JSONObject();
+        o.put("latitude", mBuffer.getDouble(p + 8));
+        o.put("longitude", mBuffer.getDouble(p + 16));
+        o.put("altitude", Double.isNaN(altitude) ? null : altitude);
+        o.put("accuracy", mBuffer.getFloat(p + 32));
+        o.put("heading", Float.isNaN(bearing) ? null : bearing);
+        o.put("velocity", mBuffer.getFloat(p + 36));
+        o.put("timestamp", time);
+        return o;
+    }
+}
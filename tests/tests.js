@@ -80,6 +80,56 @@ exports.defineAutoTests = function() {
       expect(typeof cordova.plugins.locationServices.geolocation.clearWatch == 'function').toBe(true);
     });
 
+    it("geolocation.spec.9 should contain a startRecording function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.startRecording).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.startRecording == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.10 should contain a stopRecording function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.stopRecording).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.stopRecording == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.11 should contain a getTrack function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.getTrack).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.getTrack == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.12 should contain a clearTrack function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.clearTrack).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.clearTrack == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.13 should contain a getHistory function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.getHistory).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.getHistory == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.14 should contain a reverseGeocode function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.reverseGeocode).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.reverseGeocode == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.15 should contain a getStats function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.getStats).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.getStats == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.16 should contain a resetStats function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.resetStats).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.resetStats == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.17 should contain an addGeofences function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.addGeofences).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.addGeofences == 'function').toBe(true);
+    });
+
+    it("geolocation.spec.18 should contain a removeGeofences function", function() {
+      expect(typeof cordova.plugins.locationServices.geolocation.removeGeofences).toBeDefined();
+      expect(typeof cordova.plugins.locationServices.geolocation.removeGeofences == 'function').toBe(true);
+    });
+
   });
 
   describe('getCurrentPosition method', function() {
@@ -182,6 +232,33 @@ exports.defineAutoTests = function() {
 
   });
 
+  describe('getStats method', function() {
+
+    it("geolocation.spec.19 should be called with the counters and histograms", function(done) {
+      cordova.plugins.locationServices.geolocation.getStats(function(stats) {
+        expect(stats.counters).toBeDefined();
+        expect(stats.histograms).toBeDefined();
+        done();
+      },
+        fail.bind(null, done));
+    });
+
+  });
+
+  describe('reverseGeocode method', function() {
+
+    it("geolocation.spec.20 should call the error callback for a latitude out of range", function(done) {
+      cordova.plugins.locationServices.geolocation.reverseGeocode(
+        {
+          latitude: 91,
+          longitude: 0
+        },
+        fail.bind(null, done),
+        succeed.bind(null, done));
+    });
+
+  });
+
 };
 
 /******************************************************************************/
@@ -25,7 +25,7 @@ var argscheck = require('cordova/argscheck'),
   PositionError = require('./PositionError'),
   Position = require('./Position');
 
-var timers = {}; // list of timers in use
+var requests = {}; // first position requests of the running watches
 
 var PRIORITY_HIGH_ACCURACY = 100;
 var PRIORITY_BALANCED_POWER_ACCURACY = 102;
@@ -40,7 +40,20 @@ function parseParameters(options) {
     timeout: Infinity,
     interval: 6000,
     fastInterval: 1000,
-    priority: PRIORITY_HIGH_ACCURACY
+    priority: PRIORITY_HIGH_ACCURACY,
+    maxWaitTime: 0,
+    batchSize: 0,
+    format: 'json',
+    minDistance: 0,
+    minTime: 0,
+    maximumAccuracy: 0,
+    desiredAccuracy: 0,
+    deadline: 0,
+    simplifyTolerance: 0,
+    smoothing: false,
+    adaptive: false,
+    background: false,
+    delivery: 'all'
   };
 
   if (options) {
@@ -63,6 +76,60 @@ function parseParameters(options) {
     if (options.fastInterval !== undefined && !isNaN(options.fastInterval) && options.fastInterval > 0) {
       opt.fastInterval = options.fastInterval;
     }
+    if (options.maxWaitTime !== undefined && !isNaN(options.maxWaitTime) && options.maxWaitTime > 0) {
+      opt.maxWaitTime = options.maxWaitTime;
+    }
+    if (options.batchSize !== undefined && !isNaN(options.batchSize) && options.batchSize > 0) {
+      opt.batchSize = options.batchSize;
+    }
+    if (options.maximumAccuracy !== undefined && !isNaN(options.maximumAccuracy) && options.maximumAccuracy > 0) {
+      opt.maximumAccuracy = options.maximumAccuracy;
+    }
+    if (options.desiredAccuracy !== undefined && !isNaN(options.desiredAccuracy) && options.desiredAccuracy > 0) {
+      opt.desiredAccuracy = options.desiredAccuracy;
+    }
+    if (options.deadline !== undefined && !isNaN(options.deadline) && options.deadline > 0) {
+      opt.deadline = options.deadline;
+    }
+    if (options.minDistance !== undefined && !isNaN(options.minDistance) && options.minDistance > 0) {
+      opt.minDistance = options.minDistance;
+    }
+    if (options.minTime !== undefined && !isNaN(options.minTime) && options.minTime > 0) {
+      opt.minTime = options.minTime;
+    }
+    if (options.simplifyTolerance !== undefined && !isNaN(options.simplifyTolerance) && options.simplifyTolerance > 0) {
+      opt.simplifyTolerance = options.simplifyTolerance;
+    }
+    if (options.smoothing !== undefined) {
+      opt.smoothing = !!options.smoothing;
+    }
+    if (options.adaptive !== undefined) {
+      opt.adaptive = !!options.adaptive;
+    }
+    if (options.background !== undefined) {
+      opt.background = !!options.background;
+    }
+    if (options.processNoise !== undefined && !isNaN(options.processNoise) && options.processNoise > 0) {
+      opt.processNoise = options.processNoise;
+    }
+    if (options.maxSpeed !== undefined && !isNaN(options.maxSpeed) && options.maxSpeed > 0) {
+      opt.maxSpeed = options.maxSpeed;
+    }
+    if (options.maxAcceleration !== undefined && !isNaN(options.maxAcceleration) && options.maxAcceleration > 0) {
+      opt.maxAcceleration = options.maxAcceleration;
+    }
+    if (options.delivery === 'latest' || options.delivery === 'queue') {
+      opt.delivery = options.delivery;
+    }
+    if (options.queueSize !== undefined && !isNaN(options.queueSize) && options.queueSize > 0) {
+      opt.queueSize = options.queueSize;
+    }
+    if (options.maxInFlight !== undefined && !isNaN(options.maxInFlight) && options.maxInFlight > 0) {
+      opt.maxInFlight = options.maxInFlight;
+    }
+    if (options.format === 'compact' || options.format === 'polyline') {
+      opt.format = options.format;
+    }
     if (options.priority !== undefined && !isNaN(options.priority) && options.priority >= PRIORITY_NO_POWER && options.priority <= PRIORITY_HIGH_ACCURACY) {
       if (options.priority === PRIORITY_NO_POWER) {
         opt.priority = PRIORITY_NO_POWER;
@@ -82,17 +149,42 @@ function parseParameters(options) {
   return opt;
 }
 
-// Returns a timeout failure, closed over a specified timeout value and error callback.
-function createTimeout(errorCallback, timeout) {
-  var t = setTimeout(function() {
-    clearTimeout(t);
-    t = null;
-    errorCallback({
-      code: PositionError.TIMEOUT,
-      message: "Position retrieval timed out."
-    });
-  }, timeout);
-  return t;
+// Builds a Position from the location object sent by native code.
+function createPosition(p) {
+  return new Position({
+    latitude: p.latitude,
+    longitude: p.longitude,
+    altitude: p.altitude,
+    accuracy: p.accuracy,
+    heading: p.heading,
+    velocity: p.velocity,
+    altitudeAccuracy: p.altitudeAccuracy
+  }, p.timestamp);
+}
+
+// Number of columns in the compact format: latitude, longitude, altitude,
+// accuracy, heading, velocity and timestamp.
+var COMPACT_COLUMNS = 7;
+
+// Decodes positions sent in the compact format. The buffer holds columns of
+// doubles, missing values are NaN.
+function decodePositions(buffer) {
+  var values = new Float64Array(buffer);
+  var count = values.length / COMPACT_COLUMNS;
+  var positions = new Array(count);
+  for (var i = 0; i < count; i++) {
+    var altitude = values[2 * count + i];
+    var heading = values[4 * count + i];
+    positions[i] = new Position({
+      latitude: values[i],
+      longitude: values[count + i],
+      altitude: isNaN(altitude) ? null : altitude,
+      accuracy: values[3 * count + i],
+      heading: isNaN(heading) ? null : heading,
+      velocity: values[5 * count + i]
+    }, values[6 * count + i]);
+  }
+  return positions;
 }
 
 var LocationServicesWithoutPermission = {
@@ -106,37 +198,35 @@ var LocationServicesWithoutPermission = {
    */
   getCurrentPosition: function(successCallback, errorCallback, options) {
     argscheck.checkArgs('fFO', 'LocationServices.getCurrentPosition', arguments);
+    var onProgress = options && options.onProgress;
     options = parseParameters(options);
+    // Native code sends the better positions received while refining
+    options.progress = typeof onProgress === 'function' && options.desiredAccuracy > 0;
 
-    // Timer var that will fire an error callback if no position is retrieved from native
-    // before the "timeout" param provided expires
-    var timeoutTimer = {
-      timer: null
+    // Tracks the native request, the "timeout" param is enforced by native code
+    // which fires the error callback if no position is retrieved in time.
+    var request = {
+      pending: false
     };
 
     var win = function(p) {
-      clearTimeout(timeoutTimer.timer);
-      if (!(timeoutTimer.timer)) {
-        // Timeout already happened, or native fired error callback for
-        // this geo request.
+      if (!request.pending) {
+        // Native fired error callback for this geo request, or the watch
+        // was cleared.
         // Don't continue with success callback.
         return;
       }
-      var pos = new Position({
-        latitude: p.latitude,
-        longitude: p.longitude,
-        altitude: p.altitude,
-        accuracy: p.accuracy,
-        heading: p.heading,
-        velocity: p.velocity,
-        altitudeAccuracy: p.altitudeAccuracy
-      }, p.timestamp);
+      if (p && p.event === 'progress') {
+        onProgress(createPosition(p.position));
+        return;
+      }
+      request.pending = false;
+      var pos = createPosition(p);
       LocationServicesWithoutPermission.lastPosition = pos;
       successCallback(pos);
     };
     var fail = function(e) {
-      clearTimeout(timeoutTimer.timer);
-      timeoutTimer.timer = null;
+      request.pending = false;
       var err = new PositionError(e.code, e.message);
       if (errorCallback) {
         errorCallback(err);
@@ -145,7 +235,10 @@ var LocationServicesWithoutPermission = {
 
     // Check our cached position, if its timestamp difference with current time is less than the maximumAge, then just
     // fire the success callback with the cached position.
-    if (LocationServicesWithoutPermission.lastPosition && options.maximumAge && ((Date.now() - LocationServicesWithoutPermission.lastPosition.timestamp) <= options.maximumAge)) {
+    var lastPosition = LocationServicesWithoutPermission.lastPosition;
+    if (lastPosition && options.maximumAge && ((Date.now() - lastPosition.timestamp) <= options.maximumAge) &&
+        (!options.maximumAccuracy || lastPosition.coords.accuracy <= options.maximumAccuracy) &&
+        (!options.desiredAccuracy || lastPosition.coords.accuracy <= options.desiredAccuracy)) {
       successCallback(LocationServicesWithoutPermission.lastPosition);
     // If the cached position check failed and the timeout was set to 0, error out with a TIMEOUT error object.
     } else if (options.timeout === 0) {
@@ -155,20 +248,10 @@ var LocationServicesWithoutPermission = {
       });
     // Otherwise we have to call into native to retrieve a position.
     } else {
-      if (options.timeout !== Infinity) {
-        // If the timeout value was not set to Infinity (default), then
-        // set up a timeout function that will fire the error callback
-        // if no successful position was retrieved before timeout expired.
-        timeoutTimer.timer = createTimeout(fail, options.timeout);
-      } else {
-        // This is here so the check in the win function doesn't mess stuff up
-        // may seem weird but this guarantees timeoutTimer is
-        // always truthy before we call into native
-        timeoutTimer.timer = true;
-      }
-      exec(win, fail, "LocationServices", "getLocation", [options.maximumAge, options.enableHighAccuracy]);
+      request.pending = true;
+      exec(win, fail, "LocationServices", "getLocation", [options.maximumAge, options.enableHighAccuracy, options]);
     }
-    return timeoutTimer;
+    return request;
   },
   /**
    * Asynchronously watches the geolocation for changes to geolocation.  When a change occurs,
@@ -181,40 +264,90 @@ var LocationServicesWithoutPermission = {
    */
   watchPosition: function(successCallback, errorCallback, options, watchId) {
     argscheck.checkArgs('fFO', 'LocationServices.getCurrentPosition', arguments);
+    var onTierChange = options && options.onTierChange;
     options = parseParameters(options);
 
     var id = watchId ? watchId : utils.createUUID();
+    var batched = options.maxWaitTime > 0 || options.batchSize > 0;
+    var polyline = '';
 
-    // Tell device to get a position ASAP, and also retrieve a reference to the timeout timer generated in getCurrentPosition
-    timers[id] = LocationServicesWithoutPermission.getCurrentPosition(successCallback, errorCallback, options);
+    // Tell device to get a position ASAP, and also retrieve a reference to the request made by getCurrentPosition.
+    // Batched watches always receive an array of positions, the first one too.
+    // Polyline watches skip it, the native encoder must see every fix of the path.
+    if (options.format === 'polyline') {
+      requests[id] = {
+        pending: false
+      };
+    } else {
+      var first = batched ? function(p) { successCallback([p]); } : successCallback;
+      requests[id] = LocationServicesWithoutPermission.getCurrentPosition(first, errorCallback, options);
+    }
 
+    // Native code fires the error callback every "timeout" milliseconds without a new position
     var fail = function(e) {
-      clearTimeout(timers[id].timer);
       var err = new PositionError(e.code, e.message);
       if (errorCallback) {
         errorCallback(err);
       }
     };
 
+    var deliver = function(p) {
+      // Native code sends the chunks to append to the encoded polyline
+      if (options.format === 'polyline') {
+        polyline += p;
+        successCallback(polyline);
+        return;
+      }
+      var positions;
+      if (p instanceof ArrayBuffer) {
+        positions = decodePositions(p);
+      } else if (Array.isArray(p)) {
+        positions = p.map(createPosition);
+      } else {
+        positions = [createPosition(p)];
+      }
+      if (positions.length === 0) {
+        return;
+      }
+      LocationServicesWithoutPermission.lastPosition = positions[positions.length - 1];
+      // Batched watches receive an array of positions, oldest first
+      if (batched) {
+        successCallback(positions);
+        return;
+      }
+      // Other watches get the positions buffered while paused one by one
+      for (var i = 0; i < positions.length; i++) {
+        successCallback(positions[i]);
+      }
+    };
+
     var win = function(p) {
-      clearTimeout(timers[id].timer);
-      if (options.timeout !== Infinity) {
-        timers[id].timer = createTimeout(fail, options.timeout);
+      // Adaptive watches are told when their power tier changes
+      if (p && p.event === 'tier') {
+        if (typeof onTierChange === 'function') {
+          onTierChange({
+            tier: p.tier,
+            speed: p.speed,
+            priority: p.priority,
+            interval: p.interval,
+            timestamp: p.timestamp
+          });
+        }
+        return;
+      }
+      if (options.delivery === 'all') {
+        deliver(p);
+        return;
+      }
+      // Native code holds the next positions until this one is processed
+      try {
+        deliver(p);
+      } finally {
+        exec(null, null, "LocationServices", "ackWatch", [id]);
       }
-      var pos = new Position({
-        latitude: p.latitude,
-        longitude: p.longitude,
-        altitude: p.altitude,
-        accuracy: p.accuracy,
-        heading: p.heading,
-        velocity: p.velocity,
-        altitudeAccuracy: p.altitudeAccuracy
-      }, p.timestamp);
-      LocationServicesWithoutPermission.lastPosition = pos;
-      successCallback(pos);
     };
 
-    exec(win, fail, "LocationServices", "addWatch", [id, options.enableHighAccuracy, options.priority, options.interval, options.fastInterval]);
+    exec(win, fail, "LocationServices", "addWatch", [id, options.enableHighAccuracy, options.priority, options.interval, options.fastInterval, options]);
 
     return id;
   },
@@ -224,9 +357,9 @@ var LocationServicesWithoutPermission = {
    * @param {String} id       The ID of the watch returned from #watchPosition
    */
   clearWatch: function(id) {
-    if (id && timers[id] !== undefined) {
-      clearTimeout(timers[id].timer);
-      timers[id].timer = false;
+    if (id && requests[id] !== undefined) {
+      requests[id].pending = false;
+      delete requests[id];
       exec(null, null, "LocationServices", "clearWatch", [id]);
     }
   }
@@ -260,6 +393,183 @@ var LocationServices = {
     };
 
     exec(win, errorCallback, 'LocationServices', 'getPermission', []);
+  },
+
+  /**
+   * Starts recording every position received by the running watches to a file on the device.
+   *
+   * @param {Function} successCallback    The function to call when the recorder is started (OPTIONAL)
+   * @param {Function} errorCallback      The function to call when there is an error (OPTIONAL)
+   * @param {Object} options              The maximum number of positions kept, as "capacity" (OPTIONAL)
+   */
+  startRecording: function(successCallback, errorCallback, options) {
+    argscheck.checkArgs('FFO', 'LocationServices.startRecording', arguments);
+    var args = (options && options.capacity > 0) ? [options.capacity] : [];
+    exec(successCallback, errorCallback, 'LocationServices', 'startRecording', args);
+  },
+
+  /**
+   * Stops recording positions. The recorded positions are kept.
+   */
+  stopRecording: function(successCallback, errorCallback) {
+    argscheck.checkArgs('FF', 'LocationServices.stopRecording', arguments);
+    exec(successCallback, errorCallback, 'LocationServices', 'stopRecording', []);
+  },
+
+  /**
+   * Gets one page of the recorded positions.
+   *
+   * @param {Function} successCallback    The function to call with the page, an object holding
+   *                                      the "positions" and the "next" cursor
+   * @param {Function} errorCallback      The function to call when there is an error (OPTIONAL)
+   * @param {Object} options              The "from" and "to" timestamps, the "cursor" of the
+   *                                      previous page and the "pageSize" (OPTIONAL)
+   */
+  getTrack: function(successCallback, errorCallback, options) {
+    argscheck.checkArgs('fFO', 'LocationServices.getTrack', arguments);
+    options = options || {};
+    var win = function(page) {
+      successCallback({
+        positions: page.positions.map(createPosition),
+        next: page.next
+      });
+    };
+    exec(win, errorCallback, 'LocationServices', 'getTrack', [
+      options.from || 0,
+      options.to || Number.MAX_SAFE_INTEGER,
+      (options.cursor !== undefined && options.cursor !== null) ? options.cursor : -1,
+      options.pageSize || 500
+    ]);
+  },
+
+  /**
+   * Deletes the recorded positions.
+   */
+  clearTrack: function(successCallback, errorCallback) {
+    argscheck.checkArgs('FF', 'LocationServices.clearTrack', arguments);
+    exec(successCallback, errorCallback, 'LocationServices', 'clearTrack', []);
+  },
+
+  /**
+   * Gets the recent positions kept by the plugin, oldest first.
+   *
+   * @param {Function} successCallback    The function to call with the positions
+   * @param {Function} errorCallback      The function to call when there is an error (OPTIONAL)
+   * @param {Object} options              Only the positions newer than the "since" timestamp, at
+   *                                      most the "maxCount" newest ones. With the "columns" format,
+   *                                      the success callback is passed typed arrays instead of
+   *                                      Position objects (OPTIONAL)
+   */
+  getHistory: function(successCallback, errorCallback, options) {
+    argscheck.checkArgs('fFO', 'LocationServices.getHistory', arguments);
+    options = options || {};
+    var win = function(buffer) {
+      if (options.format !== 'columns') {
+        successCallback(decodePositions(buffer));
+        return;
+      }
+      // Views on the buffer, nothing is copied
+      var count = buffer.byteLength / (8 * COMPACT_COLUMNS);
+      var column = function(index) {
+        return new Float64Array(buffer, index * count * 8, count);
+      };
+      successCallback({
+        latitude: column(0),
+        longitude: column(1),
+        altitude: column(2),
+        accuracy: column(3),
+        heading: column(4),
+        velocity: column(5),
+        timestamp: column(6)
+      });
+    };
+    var args = [options.since || 0];
+    if (options.maxCount > 0) {
+      args.push(options.maxCount);
+    }
+    exec(win, errorCallback, 'LocationServices', 'getHistory', args);
+  },
+
+  /**
+   * Gets the addresses of a position. The addresses are cached by geohash cell, so the
+   * positions of an area already looked up are answered without calling the Geocoder.
+   *
+   * @param {Object} coords               The "latitude" and "longitude", or a Position
+   * @param {Function} successCallback    The function to call with the addresses, best match first
+   * @param {Function} errorCallback      The function to call when there is an error (OPTIONAL)
+   * @param {Object} options              The geohash length of the cells, as "precision" (OPTIONAL)
+   */
+  reverseGeocode: function(coords, successCallback, errorCallback, options) {
+    argscheck.checkArgs('ofFO', 'LocationServices.reverseGeocode', arguments);
+    if (coords.coords) {
+      coords = coords.coords;
+    }
+    exec(successCallback, errorCallback, 'LocationServices', 'reverseGeocode', [
+      coords.latitude,
+      coords.longitude,
+      (options && options.precision > 0) ? options.precision : 0
+    ]);
+  },
+
+  /**
+   * Gets the counters and latency histograms recorded by the plugin.
+   *
+   * @param {Function} successCallback    The function to call with the statistics
+   * @param {Function} errorCallback      The function to call when there is an error (OPTIONAL)
+   */
+  getStats: function(successCallback, errorCallback) {
+    argscheck.checkArgs('fF', 'LocationServices.getStats', arguments);
+    exec(successCallback, errorCallback, 'LocationServices', 'getStats', []);
+  },
+
+  /**
+   * Resets the counters and latency histograms.
+   */
+  resetStats: function(successCallback, errorCallback) {
+    argscheck.checkArgs('FF', 'LocationServices.resetStats', arguments);
+    exec(successCallback, errorCallback, 'LocationServices', 'resetStats', []);
+  },
+
+  /**
+   * Starts monitoring zones on the device. Only the transitions are sent to JavaScript.
+   *
+   * @param {Array} geofences             The zones: circles with an "id", a "latitude", a "longitude" and a
+   *                                      "radius" in meters, or polygons with an "id" and "vertices", an array
+   *                                      of [latitude, longitude] pairs. A "loiteringDelay" in milliseconds
+   *                                      enables the dwell transition.
+   * @param {Function} transitionCallback The function to call with each transition, an object holding the
+   *                                      zone "id", the "transition" ("enter", "exit" or "dwell") and the "position"
+   * @param {Function} errorCallback      The function to call when there is an error (OPTIONAL)
+   */
+  addGeofences: function(geofences, transitionCallback, errorCallback) {
+    argscheck.checkArgs('afF', 'LocationServices.addGeofences', arguments);
+    var win = function(e) {
+      transitionCallback({
+        id: e.id,
+        transition: e.transition,
+        position: createPosition(e.position)
+      });
+    };
+    var fail = function(e) {
+      if (errorCallback) {
+        errorCallback(e && e.code !== undefined ? new PositionError(e.code, e.message) : e);
+      }
+    };
+    var add = function() {
+      exec(win, fail, 'LocationServices', 'addGeofences', [geofences]);
+    };
+
+    exec(add, errorCallback, 'LocationServices', 'getPermission', []);
+  },
+
+  /**
+   * Stops monitoring zones.
+   *
+   * @param {Array} ids                   The ids of the zones, all the zones are removed if null
+   */
+  removeGeofences: function(ids, successCallback, errorCallback) {
+    argscheck.checkArgs('AFF', 'LocationServices.removeGeofences', arguments);
+    exec(successCallback, errorCallback, 'LocationServices', 'removeGeofences', ids ? [ids] : []);
   }
 };
 